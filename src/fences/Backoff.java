@@ -0,0 +1,77 @@
+package fences;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A <code>Backoff</code> describes how the interval between two polls grows while nothing changes.<br>
+ * Polling starts with the minimum interval, which is multiplied by the factor after every poll without a change, up to the maximum interval.
+ * Once something has changed, the interval drops back to the minimum. Each delay is randomly varied by the jitter,
+ * a fraction of the interval, so that polls started at the same time spread out instead of hitting the server together.
+ * @see fences.PollScheduler
+ * @author Jakob Danckwerts
+ */
+public class Backoff {
+	protected long min;
+	protected long max;
+	protected double factor;
+	protected double jitter;
+	
+	/**
+	 * Creates the default backoff, which starts at 20 milliseconds and grows by half with every poll up to 400 milliseconds, with a jitter of 20%.
+	 * A change is therefore noticed within tens of milliseconds while the opponent answers quickly,
+	 * and a slowly thinking opponent costs no more than a few requests per second.
+	 * @author Jakob Danckwerts
+	 */
+	public Backoff() {
+		this(Duration.ofMillis(20), Duration.ofMillis(400), 1.5, 0.2);
+	}
+	
+	/**
+	 * Creates a backoff with the given minimum and maximum interval, growth factor and jitter.
+	 * The factor must be at least 1, the jitter between 0 and 1.
+	 * @author Jakob Danckwerts
+	 */
+	public Backoff(Duration min, Duration max, double factor, double jitter) {
+		if(min.isNegative() || max.compareTo(min) < 0) throw new IllegalArgumentException("Invalid intervals " + min + " and " + max);
+		if(!(factor >= 1)) throw new IllegalArgumentException("factor must be at least 1");
+		if(!(jitter >= 0 && jitter <= 1)) throw new IllegalArgumentException("jitter must be between 0 and 1");
+		this.min = min.toNanos();
+		this.max = max.toNanos();
+		this.factor = factor;
+		this.jitter = jitter;
+	}
+	
+	/**
+	 * Returns a backoff that always waits for the given interval.
+	 * @author Jakob Danckwerts
+	 */
+	public static Backoff fixed(Duration interval) {
+		return new Backoff(interval, interval, 1, 0);
+	}
+	
+	/**
+	 * Returns the first interval in nanoseconds, used at the beginning and after every change.
+	 * @author Jakob Danckwerts
+	 */
+	public long initial() {
+		return min;
+	}
+	
+	/**
+	 * Returns the interval in nanoseconds that follows the given one if nothing has changed.
+	 * @author Jakob Danckwerts
+	 */
+	public long next(long interval) {
+		return (long) Math.min(max, Math.max(min, interval * factor));
+	}
+	
+	/**
+	 * Returns the given interval in nanoseconds, randomly varied by the jitter.
+	 * @author Jakob Danckwerts
+	 */
+	public long jitter(long interval) {
+		if(jitter == 0) return interval;
+		return interval + (long) (interval * jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+	}
+}
@@ -0,0 +1,230 @@
+package fences;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A <code>Board</code> is a compact representation of a game's board. It stores one bit mask per player,
+ * each field occupies one bit in the mask of the player who owns it and none if it is empty.<br>
+ * Like <code>Game.content()</code>, fields are indexed as a single concatenation of all rows, starting at the top left corner.
+ * Boards of up to 64 fields fit into a single <code>long</code> per player, larger boards use as many as needed.
+ * @author Jakob Danckwerts
+ */
+public class Board {
+	/**
+	 * Maps the characters of the API's board string to field values, -1 marking invalid characters.
+	 */
+	private static final byte[] FIELDS = new byte[128];
+	
+	static {
+		Arrays.fill(FIELDS, (byte) -1);
+		FIELDS['0'] = 0;
+		FIELDS['1'] = 1;
+		FIELDS['2'] = 2;
+	}
+	
+	protected int size;
+	protected long[] player0;
+	protected long[] player1;
+	
+	/**
+	 * Creates an empty board with the given number of fields.
+	 * @author Jakob Danckwerts
+	 */
+	public Board(int size) {
+		if(size < 0) throw new IllegalArgumentException("size must not be negative");
+		this.size = size;
+		this.player0 = new long[(size + 63) >>> 6];
+		this.player1 = new long[(size + 63) >>> 6];
+	}
+	
+	/**
+	 * Creates a board with the given fields. <code>null</code> fields are regarded as empty.
+	 * @author Jakob Danckwerts
+	 */
+	public Board(Game.Field[] fields) {
+		this(fields.length);
+		for(int i = 0; i<fields.length; i++) {
+			if(fields[i] != null) set(i, fields[i]);
+		}
+	}
+	
+	/**
+	 * Creates a board from the string form used by the API, one digit per field.
+	 * The masks are filled 64 fields at a time using a lookup table, without any allocation per field.<br>
+	 * Throws an <code>IllegalArgumentException</code> if the string contains a character that does not stand for a field.
+	 * @author Jakob Danckwerts
+	 */
+	public static Board parse(CharSequence content) {
+		int size = content.length();
+		Board board = new Board(size);
+		long[] player0 = board.player0;
+		long[] player1 = board.player1;
+		
+		for(int word = 0; word<player0.length; word++) {
+			int start = word << 6;
+			int end = Math.min(start + 64, size);
+			long mask0 = 0;
+			long mask1 = 0;
+			for(int i = start; i<end; i++) {
+				char c = content.charAt(i);
+				int field = c < 128 ? FIELDS[c] : -1;
+				if(field < 0) throw new IllegalArgumentException("Invalid field '" + c + "' at index " + i);
+				// field is 0, 1 or 2, so its low bit marks player 0 and its high bit marks player 1
+				mask0 |= (long) (field & 1) << i;
+				mask1 |= (long) (field >>> 1) << i;
+			}
+			player0[word] = mask0;
+			player1[word] = mask1;
+		}
+		return board;
+	}
+	
+	protected Board(Board board) {
+		this.size = board.size;
+		this.player0 = board.player0.clone();
+		this.player1 = board.player1.clone();
+	}
+	
+	/**
+	 * Returns the number of fields of this board.
+	 * @author Jakob Danckwerts
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the content of the field at the given index.
+	 * @author Jakob Danckwerts
+	 */
+	public Game.Field get(int index) {
+		Objects.checkIndex(index, size);
+		long bit = 1L << index;
+		if((player0[index >>> 6] & bit) != 0) return Game.Field.player0;
+		if((player1[index >>> 6] & bit) != 0) return Game.Field.player1;
+		return Game.Field.empty;
+	}
+	
+	/**
+	 * Returns whether the field at the given index is unoccupied.
+	 * @author Jakob Danckwerts
+	 */
+	public boolean isEmpty(int index) {
+		Objects.checkIndex(index, size);
+		return ((player0[index >>> 6] | player1[index >>> 6]) & (1L << index)) == 0;
+	}
+	
+	/**
+	 * Sets the content of the field at the given index.
+	 * @author Jakob Danckwerts
+	 */
+	public void set(int index, Game.Field field) {
+		Objects.checkIndex(index, size);
+		int word = index >>> 6;
+		long bit = 1L << index;
+		player0[word] &= ~bit;
+		player1[word] &= ~bit;
+		if(field == Game.Field.player0) player0[word] |= bit;
+		else if(field == Game.Field.player1) player1[word] |= bit;
+	}
+	
+	/**
+	 * Returns the number of fields with the given content.
+	 * @author Jakob Danckwerts
+	 */
+	public int count(Game.Field field) {
+		int count = 0;
+		for(int i = 0; i<player0.length; i++) {
+			switch(field) {
+			case player0:
+				count += Long.bitCount(player0[i]);
+				break;
+			case player1:
+				count += Long.bitCount(player1[i]);
+				break;
+			default:
+				count += Long.bitCount(player0[i] | player1[i]);
+			}
+		}
+		return field == Game.Field.empty ? size - count : count;
+	}
+	
+	/**
+	 * Returns the number of <code>long</code> words each player's mask consists of.
+	 * @see fences.Board#mask(Game.Field, int)
+	 * @author Jakob Danckwerts
+	 */
+	public int words() {
+		return player0.length;
+	}
+	
+	/**
+	 * Returns a word of the bit mask of the given player's fields, bit <code>i</code> of word <code>w</code> standing for field <code>64*w + i</code>.
+	 * For <code>Field.empty</code>, the mask of all occupied fields is returned.
+	 * @author Jakob Danckwerts
+	 */
+	public long mask(Game.Field field, int word) {
+		switch(field) {
+		case player0:
+			return player0[word];
+		case player1:
+			return player1[word];
+		default:
+			return player0[word] | player1[word];
+		}
+	}
+	
+	/**
+	 * Returns an independent copy of this board.
+	 * @author Jakob Danckwerts
+	 */
+	public Board copy() {
+		return new Board(this);
+	}
+	
+	/**
+	 * Returns the board as an array of <code>Field</code> values.
+	 * @see fences.Game#content()
+	 * @author Jakob Danckwerts
+	 */
+	public Game.Field[] toFields() {
+		Game.Field[] fields = new Game.Field[size];
+		for(int i = 0; i<size; i++) {
+			long bit = 1L << i;
+			if((player0[i >>> 6] & bit) != 0) fields[i] = Game.Field.player0;
+			else if((player1[i >>> 6] & bit) != 0) fields[i] = Game.Field.player1;
+			else fields[i] = Game.Field.empty;
+		}
+		return fields;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if(this == o) return true;
+		if(!(o instanceof Board)) return false;
+		Board b = (Board) o;
+		return size == b.size && Arrays.equals(player0, b.player0) && Arrays.equals(player1, b.player1);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * (31 * size + Arrays.hashCode(player0)) + Arrays.hashCode(player1);
+	}
+	
+	/**
+	 * Returns the board in the string form used by the API, one digit per field.
+	 * @author Jakob Danckwerts
+	 */
+	@Override
+	public String toString() {
+		char[] chars = new char[size];
+		for(int i = 0; i<size; i++) {
+			long bit = 1L << i;
+			if((player0[i >>> 6] & bit) != 0) chars[i] = '1';
+			else if((player1[i >>> 6] & bit) != 0) chars[i] = '2';
+			else chars[i] = '0';
+		}
+		return new String(chars);
+	}
+}
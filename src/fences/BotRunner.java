@@ -0,0 +1,192 @@
+package fences;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <code>BotRunner</code> plays any number of games at the same time on behalf of one or more players, using a shared <code>Client</code>.<br>
+ * Each game is driven by a small state machine: the game is fetched, and if it is the bot's turn, the <code>Strategy</code> chooses a move which is sent right away.
+ * Otherwise the game is fetched again later, more often right after a change and less often while the opponent thinks, as described by a <code>Backoff</code>.
+ * Requests are sent with the asynchronous methods of the <code>Client</code> and polls are timed by a <code>PollScheduler</code>,
+ * so no thread waits for the server and a handful of threads is enough for thousands of games.<br>
+ * Failed requests are retried with the next poll, a game is given up after too many failures in a row.
+ * @see fences.Strategy
+ * @see fences.PollScheduler
+ * @author Jakob Danckwerts
+ */
+public class BotRunner {
+	protected Client client;
+	protected Strategy strategy;
+	protected ExecutorService executor;
+	protected PollScheduler scheduler;
+	protected Backoff backoff;
+	protected int maxFailures = 5;
+	private AtomicInteger active = new AtomicInteger();
+	
+	/**
+	 * Creates a runner that uses two threads and the default <code>Backoff</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public BotRunner(Client client, Strategy strategy) {
+		this(client, strategy, 2, new Backoff());
+	}
+	
+	/**
+	 * Creates a runner with the given number of threads, which are used to handle responses and to run the strategy,
+	 * and the given backoff for the intervals between two requests of the same game while waiting for the opponent.
+	 * @author Jakob Danckwerts
+	 */
+	public BotRunner(Client client, Strategy strategy, int threads, Backoff backoff) {
+		if(threads < 1) throw new IllegalArgumentException("threads must be positive");
+		this.client = client;
+		this.strategy = strategy;
+		this.backoff = backoff;
+		AtomicInteger count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "BotRunner-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler = new PollScheduler(executor);
+	}
+	
+	/**
+	 * Sets the number of failed requests in a row after which a game is given up. The default is 5.
+	 * @author Jakob Danckwerts
+	 */
+	public BotRunner maxFailures(int maxFailures) {
+		if(maxFailures < 1) throw new IllegalArgumentException("maxFailures must be positive");
+		this.maxFailures = maxFailures;
+		return this;
+	}
+	
+	/**
+	 * Returns the number of games currently being played.
+	 * @author Jakob Danckwerts
+	 */
+	public int active() {
+		return active.get();
+	}
+	
+	/**
+	 * Lets the player identified by <code>playerID</code> join a game using <code>Client.findGame</code> and plays it to the end.<br>
+	 * The returned future completes with the finished game, or with the status of the last failed request if the game had to be given up.
+	 * @see fences.Client#findGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Game>> play(long playerID) {
+		return client.findGameAsync(playerID).thenCompose(joined -> {
+			if(joined.status() != APIStatus.ok) return CompletableFuture.completedFuture(new Result<Game>(joined.status()));
+			return play(joined.value());
+		});
+	}
+	
+	/**
+	 * Plays a game which has already been joined to the end.
+	 * @see fences.BotRunner#play(long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Game>> play(JoinResult joined) {
+		return play(joined.game().id(), joined.player().id(), joined.playerRole());
+	}
+	
+	/**
+	 * Plays the game identified by <code>gameID</code> to the end as the player identified by <code>playerID</code>,
+	 * who has joined it as player 1 if <code>role</code> is <code>true</code> or as player 0 otherwise.
+	 * @see fences.BotRunner#play(long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Game>> play(long gameID, long playerID, boolean role) {
+		Bot bot = new Bot(gameID, playerID, role);
+		active.incrementAndGet();
+		PollScheduler.Handle handle = scheduler.poll(bot::poll, backoff);
+		bot.future.whenComplete((result, e) -> {
+			active.decrementAndGet();
+			handle.cancel();
+		});
+		return bot.future;
+	}
+	
+	/**
+	 * Stops all threads of this runner. Games which are still being played are not continued.
+	 * @author Jakob Danckwerts
+	 */
+	public void shutdown() {
+		scheduler.shutdown();
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * The state of a single game being played.
+	 */
+	protected class Bot {
+		protected final long gameID;
+		protected final long playerID;
+		protected final boolean role;
+		protected final CompletableFuture<Result<Game>> future = new CompletableFuture<Result<Game>>();
+		private int failures;
+		private Game.Status lastStatus;
+		private Boolean lastActivePlayer;
+		
+		protected Bot(long gameID, long playerID, boolean role) {
+			this.gameID = gameID;
+			this.playerID = playerID;
+			this.role = role;
+		}
+		
+		/**
+		 * Fetches the game and makes a turn if it is the bot's turn. Changes of the game's status or active player reset the polling interval.
+		 */
+		protected CompletableFuture<PollScheduler.Outcome> poll() {
+			return client.getGameAsync(gameID)
+					.exceptionally(e -> new Result<Game>(APIStatus.error))
+					.thenComposeAsync(this::handle, executor);
+		}
+		
+		private CompletableFuture<PollScheduler.Outcome> handle(Result<Game> result) {
+			if(result.status() != APIStatus.ok || result.value() == null) return CompletableFuture.completedFuture(fail(result.status()));
+			Game game = result.value();
+			if(game.status() == Game.Status.finished) {
+				future.complete(new Result<Game>(game));
+				return CompletableFuture.completedFuture(PollScheduler.Outcome.done);
+			}
+			if(game.status() == Game.Status.running && game.activePlayer() != null && game.activePlayer() == role) {
+				// failures are only reset once the turn is accepted, so a strategy insisting on an invalid move gives up eventually
+				return turn(game);
+			}
+			
+			failures = 0;
+			boolean changed = game.status() != lastStatus || !Objects.equals(game.activePlayer(), lastActivePlayer);
+			lastStatus = game.status();
+			lastActivePlayer = game.activePlayer();
+			return CompletableFuture.completedFuture(changed ? PollScheduler.Outcome.changed : PollScheduler.Outcome.unchanged);
+		}
+		
+		private CompletableFuture<PollScheduler.Outcome> turn(Game game) {
+			Move move;
+			try {
+				move = strategy.move(game, role);
+			} catch(RuntimeException e) {
+				future.complete(new Result<Game>(APIStatus.error, game));
+				return CompletableFuture.completedFuture(PollScheduler.Outcome.done);
+			}
+			return client.makeTurnAsync(gameID, playerID, move.x(), move.y())
+					.exceptionally(e -> new Result<TurnResult>(APIStatus.error))
+					.thenApply(result -> {
+						if(result.status() != APIStatus.ok) return fail(result.status());
+						failures = 0;
+						// poll again soon even if the turn has won the game, so the finished game is returned
+						return PollScheduler.Outcome.changed;
+					});
+		}
+		
+		private PollScheduler.Outcome fail(APIStatus status) {
+			if(++failures < maxFailures) return PollScheduler.Outcome.unchanged;
+			future.complete(new Result<Game>(status));
+			return PollScheduler.Outcome.done;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package fences;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>Cache</code> keeps values that do not change any more, like players or finished games, so that they need not be fetched again.<br>
+ * Entries expire after a fixed time to live. If the cache is full, the least recently used entry is evicted.
+ * Hits, misses and evictions are counted, which helps with sizing the cache.
+ * All methods are thread-safe.
+ * @see fences.Client.Builder#cachePlayers(int, Duration)
+ * @see fences.Client.Builder#cacheFinishedGames(int, Duration)
+ * @author Jakob Danckwerts
+ */
+public class Cache<K, V> {
+	private static class Entry<V> {
+		final V value;
+		final long expires;
+		
+		Entry(V value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+	
+	protected final int maxEntries;
+	protected final long ttl;
+	private final LinkedHashMap<K, Entry<V>> map;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * Creates a cache holding at most <code>maxEntries</code> values for the given time each.
+	 * @author Jakob Danckwerts
+	 */
+	public Cache(int maxEntries, Duration ttl) {
+		if(maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive");
+		if(ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+		this.maxEntries = maxEntries;
+		this.ttl = ttl.toNanos();
+		// access order turns the map into an LRU list, its eldest entry being the least recently used one
+		this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				if(size() <= Cache.this.maxEntries) return false;
+				evictions.increment();
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the value cached for the given key, or <code>null</code> if there is none or it has expired.
+	 * @author Jakob Danckwerts
+	 */
+	public V get(K key) {
+		V value = null;
+		synchronized(this) {
+			Entry<V> entry = map.get(key);
+			if(entry != null) {
+				if(System.nanoTime() - entry.expires < 0) value = entry.value;
+				else map.remove(key);
+			}
+		}
+		if(value != null) hits.increment();
+		else misses.increment();
+		return value;
+	}
+	
+	/**
+	 * Caches the given value, replacing any value cached for the same key.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void put(K key, V value) {
+		map.put(key, new Entry<V>(value, System.nanoTime() + ttl));
+	}
+	
+	/**
+	 * Removes the value cached for the given key.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void invalidate(K key) {
+		map.remove(key);
+	}
+	
+	/**
+	 * Removes all cached values. The counters are kept.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void clear() {
+		map.clear();
+	}
+	
+	/**
+	 * Removes all expired values and returns the number of values left.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized int size() {
+		long now = System.nanoTime();
+		Iterator<Entry<V>> it = map.values().iterator();
+		while(it.hasNext()) {
+			if(now - it.next().expires >= 0) it.remove();
+		}
+		return map.size();
+	}
+	
+	/**
+	 * Returns the number of lookups that found a value.
+	 * @author Jakob Danckwerts
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups that found no value.
+	 * @author Jakob Danckwerts
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Returns the number of values removed because the cache was full.
+	 * @author Jakob Danckwerts
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Returns the share of lookups that found a value, between 0 and 1.
+	 * @author Jakob Danckwerts
+	 */
+	public double hitRate() {
+		long hits = hits();
+		long total = hits + misses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	@Override
+	public String toString() {
+		return "Cache { size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + " }";
+	}
+}
@@ -5,16 +5,26 @@ import java.net.http.HttpClient;
 import java.net.http.HttpClient.Redirect;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
-import java.io.BufferedReader;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.StandardCharsets;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.crypto.Cipher;
 import java.security.KeyFactory;
@@ -23,8 +33,8 @@ import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
 
 import json.JSONObject;
-import json.JSONArray;
 import json.parser.JSONParser;
+import json.parser.ParseException;
 
 /**
  * A <code>Client</code> is the basic object for interaction with the Fences API.
@@ -36,20 +46,267 @@ public class Client {
 	private KeyFactory keyFactory;
 	private HttpClient client;
 	private String parentURL;
+	private Executor executor;
+	private Duration requestTimeout;
+	private RequestLimiter limiter;
+	private PollScheduler scheduler;
+	private final ConcurrentHashMap<Long, GameWatch> watches = new ConcurrentHashMap<Long, GameWatch>();
+	private ConcurrentHashMap<String, CompletableFuture<?>> inFlight;
+	private Cache<Long, Player> playerCache;
+	private Cache<Long, Game> gameCache;
+	private Cache<String, Validated> validators;
+	private Metrics metrics;
 	
 	/**
 	 * Initializes a <code>Client</code> object that communicates with the API server at the given location.
 	 * @author Jakob Danckwerts
 	 */
 	public Client(String ipAddress, String port) throws IOException, InterruptedException {
+		this(new Builder(ipAddress, port));
+	}
+	
+	protected Client(Builder builder) {
 		try {
 			this.keyFactory = KeyFactory.getInstance("RSA");
 		} catch (NoSuchAlgorithmException e) {
 			e.printStackTrace();
 			this.keyFactory = null;
 		}
-		this.parentURL = "http://" + ipAddress + ":" + port + "/fences";
-		this.client = HttpClient.newHttpClient();
+		this.parentURL = (builder.secure ? "https://" : "http://") + builder.ipAddress + ":" + builder.port + "/fences";
+		this.executor = builder.executor;
+		this.requestTimeout = builder.requestTimeout;
+		if(builder.maxConcurrentRequests > 0) this.limiter = new RequestLimiter(builder.maxConcurrentRequests);
+		if(builder.coalesceRequests) this.inFlight = new ConcurrentHashMap<String, CompletableFuture<?>>();
+		if(builder.playerCacheSize > 0) this.playerCache = new Cache<Long, Player>(builder.playerCacheSize, builder.playerTTL);
+		if(builder.gameCacheSize > 0) this.gameCache = new Cache<Long, Game>(builder.gameCacheSize, builder.gameTTL);
+		if(builder.conditionalRequests > 0) this.validators = new Cache<String, Validated>(builder.conditionalRequests, Duration.ofHours(1));
+		this.metrics = builder.metrics;
+		
+		HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+				.version(builder.version)
+				.followRedirects(builder.redirect);
+		if(builder.connectTimeout != null) clientBuilder.connectTimeout(builder.connectTimeout);
+		if(this.executor != null) clientBuilder.executor(this.executor);
+		this.client = clientBuilder.build();
+	}
+	
+	/**
+	 * A <code>Builder</code> creates <code>Client</code> objects with a custom configuration, e.g. the threads that requests are handled on
+	 * or the way connections to the API server are established.
+	 * @author Jakob Danckwerts
+	 */
+	public static class Builder {
+		protected String ipAddress;
+		protected String port;
+		protected Executor executor;
+		protected boolean secure = false;
+		protected HttpClient.Version version = HttpClient.Version.HTTP_2;
+		protected Redirect redirect = Redirect.NEVER;
+		protected Duration connectTimeout;
+		protected Duration requestTimeout;
+		protected int maxConcurrentRequests = 0;
+		protected boolean coalesceRequests = false;
+		protected int playerCacheSize = 0;
+		protected Duration playerTTL;
+		protected int gameCacheSize = 0;
+		protected Duration gameTTL;
+		protected int conditionalRequests = 0;
+		protected Metrics metrics;
+		
+		public Builder(String ipAddress, String port) {
+			this.ipAddress = ipAddress;
+			this.port = port;
+		}
+		
+		/**
+		 * Runs the underlying HTTP client and the decoding of all asynchronous responses on the given executor.
+		 * By default, the HTTP client's own executor is used.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder executor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+		
+		/**
+		 * Runs the underlying HTTP client and the decoding of all asynchronous responses on a new virtual thread per task.
+		 * The blocking methods are best called from virtual threads as well, so that waiting for a response does not occupy a platform thread.<br>
+		 * Throws an <code>UnsupportedOperationException</code> if the Java runtime does not provide virtual threads.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder virtualThreads() {
+			try {
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				this.executor = (Executor) factory.invoke(null);
+			} catch(NoSuchMethodException | IllegalAccessException e) {
+				throw new UnsupportedOperationException("Virtual threads are not available", e);
+			} catch(InvocationTargetException e) {
+				throw new UnsupportedOperationException("Virtual threads are not available", e.getCause());
+			}
+			return this;
+		}
+		
+		/**
+		 * Uses HTTPS instead of plain HTTP to communicate with the API server. Disabled by default.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder secure(boolean secure) {
+			this.secure = secure;
+			return this;
+		}
+		
+		/**
+		 * Sets the preferred HTTP version, <code>HTTP_2</code> by default.<br>
+		 * <code>HTTP_2</code> multiplexes all requests over a single connection per server; over plain HTTP it is negotiated with an upgrade
+		 * on the first request and falls back to HTTP/1.1 if the server does not support it.
+		 * <code>HTTP_1_1</code> skips the upgrade attempt and keeps connections alive to reuse them between requests.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder version(HttpClient.Version version) {
+			this.version = version;
+			return this;
+		}
+		
+		/**
+		 * Sets whether and how redirects sent by the API server are followed. By default, they are not.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder followRedirects(Redirect redirect) {
+			this.redirect = redirect;
+			return this;
+		}
+		
+		/**
+		 * Sets the maximum time to wait for a connection to the API server to be established. By default, there is no limit.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder connectTimeout(Duration timeout) {
+			this.connectTimeout = timeout;
+			return this;
+		}
+		
+		/**
+		 * Sets the maximum time to wait for the response to a single request. By default, there is no limit.<br>
+		 * Requests that time out result in <code>APIStatus.error</code>.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder requestTimeout(Duration timeout) {
+			this.requestTimeout = timeout;
+			return this;
+		}
+		
+		/**
+		 * Limits the number of requests that may be in flight at the same time, which also caps the number of concurrent HTTP/2 streams.
+		 * Further requests wait until a running one has finished. A value of 0 (the default) means no limit.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+			this.maxConcurrentRequests = maxConcurrentRequests;
+			return this;
+		}
+		
+		/**
+		 * Sets whether identical requests for games and players that are in flight at the same time share a single request.
+		 * The callers then receive the same <code>Result</code> and <code>Game</code> or <code>Player</code> objects. Disabled by default.<br>
+		 * Joining a game or making a turn through this client stops sharing requests for that game that are still in flight,
+		 * so a <code>getGame</code> called afterwards always sees the change.
+		 * @see fences.Client#getGame(long)
+		 * @see fences.Client#getPlayer(long)
+		 * @author Jakob Danckwerts
+		 */
+		public Builder coalesceRequests(boolean coalesceRequests) {
+			this.coalesceRequests = coalesceRequests;
+			return this;
+		}
+		
+		/**
+		 * Caches up to <code>maxEntries</code> players fetched with <code>getPlayer</code> for the given time, evicting the least recently used ones.
+		 * Players do not change once created, so the time to live only bounds how long a deleted player may still be returned.
+		 * Disabled by default.
+		 * @see fences.Client#playerCache()
+		 * @author Jakob Danckwerts
+		 */
+		public Builder cachePlayers(int maxEntries, Duration ttl) {
+			if(maxEntries < 0) throw new IllegalArgumentException("maxEntries must not be negative");
+			this.playerCacheSize = maxEntries;
+			this.playerTTL = ttl;
+			return this;
+		}
+		
+		/**
+		 * Caches up to <code>maxEntries</code> finished games fetched with <code>getGame</code> for the given time, evicting the least recently used ones.
+		 * Games that are still waiting or running are never cached. Disabled by default.
+		 * @see fences.Client#gameCache()
+		 * @author Jakob Danckwerts
+		 */
+		public Builder cacheFinishedGames(int maxEntries, Duration ttl) {
+			if(maxEntries < 0) throw new IllegalArgumentException("maxEntries must not be negative");
+			this.gameCacheSize = maxEntries;
+			this.gameTTL = ttl;
+			return this;
+		}
+		
+		/**
+		 * Sets for how many different requests the client remembers the <code>ETag</code> of the last response together with its decoded value.
+		 * Repeating such a request then sends the tag as <code>If-None-Match</code>, and if the server answers that nothing has changed (status 304),
+		 * the remembered value is returned without receiving or parsing the body again, so successive calls may receive the same <code>Game</code> objects.
+		 * Applies to <code>getGame</code> and <code>getPublicGames</code>, the requests that are polled. Disabled by default, e.g. 1024 is a sensible size for polling programs.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder conditionalRequests(int maxEntries) {
+			if(maxEntries < 0) throw new IllegalArgumentException("maxEntries must not be negative");
+			this.conditionalRequests = maxEntries;
+			return this;
+		}
+		
+		/**
+		 * Records the count, status codes, bytes and latencies of all requests in the given metrics, which may be shared by several clients.
+		 * By default, nothing is recorded.
+		 * @author Jakob Danckwerts
+		 */
+		public Builder metrics(Metrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+		
+		/**
+		 * Creates a <code>Client</code> object with the configured options.
+		 * @author Jakob Danckwerts
+		 */
+		public Client build() {
+			return new Client(this);
+		}
+	}
+	
+	/**
+	 * Returns the cache of players, or <code>null</code> if players are not cached.
+	 * @see fences.Client.Builder#cachePlayers(int, Duration)
+	 * @author Jakob Danckwerts
+	 */
+	public Cache<Long, Player> playerCache() {
+		return this.playerCache;
+	}
+	
+	/**
+	 * Returns the cache of finished games, or <code>null</code> if games are not cached.
+	 * @see fences.Client.Builder#cacheFinishedGames(int, Duration)
+	 * @author Jakob Danckwerts
+	 */
+	public Cache<Long, Game> gameCache() {
+		return this.gameCache;
+	}
+	
+	/**
+	 * Returns the metrics of this client's requests, or <code>null</code> if they are not recorded.
+	 * @see fences.Client.Builder#metrics(Metrics)
+	 * @author Jakob Danckwerts
+	 */
+	public Metrics metrics() {
+		return this.metrics;
+	}
+	
+	protected Executor executor() {
+		return this.executor;
 	}
 	
 	protected HttpClient client() {
@@ -62,61 +319,28 @@ public class Client {
 	
 	/**
 	 * Attempts to find a running Fences API server in the local network. Returns the retrieved IP address or <code>null</code> if none is found.<br><br>
-	 * <b>Please note: </b>Depending on the number of possibly available devices, this function might take a long time to run and return.<br>
+	 * All networks this machine is connected to are scanned by a <code>ServerScanner</code>, which usually takes well under a second.
 	 * The parameter <code>hurry</code> results in returning the first available server option,
 	 * which on one hand might reduce the function's running time
-	 * while it on the other hand can lead to using an outdated server that is not running the latest API version.
+	 * while it on the other hand can lead to using an outdated server that is not running the latest API version.<br>
+	 * Programs that search at every start should use a <code>ServerRegistry</code>, which remembers the servers found.
+	 * @see fences.ServerScanner
+	 * @see fences.ServerRegistry
 	 * @author Jakob Danckwerts
 	 */
 	public static String searchServer(String port, boolean hurry) throws IOException, InterruptedException {
-		new ProcessBuilder("ping", "255.255.255.255", "-t 1").start().waitFor();
-		
-		Process p = new ProcessBuilder("arp", "-an").start();
-		p.waitFor();
-		
-		BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()));
-		HashMap<String, CompletableFuture<HttpResponse<String>>> requests = new HashMap<>();
-		String line;
-		while((line = br.readLine()) != null) {
-			if(line.matches("\\? \\([0-9]+\\.[0-9]+\\.[0-9]+\\.[0-9]+\\) at [A-Za-z0-9]+\\:[A-Za-z0-9]+\\:[A-Za-z0-9]+\\:[A-Za-z0-9]+\\:[A-Za-z0-9]+\\:[A-Za-z0-9]+ on .*")) {
-				String address = line.split("[\\(\\)]")[1];
-				
-				HttpClient c = HttpClient.newBuilder()
-						.followRedirects(Redirect.NEVER)
-						.connectTimeout(Duration.ofMillis(1000))
-						.build();
-				String url = "http://" + address + ":" + port + "/fences-server-search";
-				HttpRequest request = HttpRequest.newBuilder()
-						.uri(URI.create(url))
-						.build();
-				
-				requests.put(address, c.sendAsync(request, BodyHandlers.ofString()));
-			}
-		}
-		
-		String bestAddress = null;
-		Version bestVersion = null;
-		for(Entry<String, CompletableFuture<HttpResponse<String>>> entry : requests.entrySet()) {
-			try {
-				HttpResponse<String> response = entry.getValue().get();
-				String body = response.body();
-				
-				if(body.matches("v[0-9]+\\.[0-9]+\\.[0-9]+")) {
-					if(hurry) return entry.getKey();
-					
-					String[] numbers = body.substring(1).split("\\.");
-					Version version = new Version(Integer.parseInt(numbers[0]), Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]));
-					if(bestVersion == null || version.compareTo(bestVersion) > 0) {
-						bestAddress = entry.getKey();
-						bestVersion = version;
-					}
-				}
-			} catch(Exception e) {
-				continue;
-			}
-		}
-		
-		return bestAddress;
+		return searchServer(ServerScanner.localRanges(), port, hurry);
+	}
+	
+	/**
+	 * Attempts to find a running Fences API server in the given address ranges, e.g. <code>192.168.0.0/24</code>.
+	 * Returns the retrieved IP address or <code>null</code> if none is found.
+	 * @see fences.Client#searchServer(String, boolean)
+	 * @author Jakob Danckwerts
+	 */
+	public static String searchServer(Collection<String> ranges, String port, boolean hurry) throws IOException, InterruptedException {
+		ServerInfo server = new ServerScanner().find(ranges, port, hurry);
+		return server == null ? null : server.address();
 	}
 	
 	/**
@@ -124,61 +348,34 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<ArrayList<Game>> getPublicGames() {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/get"))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONArray array = (JSONArray)parser.parse(body);
-					ArrayList<Game> list = new ArrayList<>();
-					
-					for(Object obj : array) {
-						if(obj == null) continue;
-						JSONObject o = (JSONObject) obj;
-						
-						try {
-							long gameID = (Long) o.get("gameID");
-							Game.Status status = Game.Status.from((Long) o.get("status"));
-							Long width = (Long) o.get("width");
-							Long height = (Long) o.get("height");
-							Long player0 = (Long) o.get("player0");
-							Long player1 = (Long) o.get("player1");
-							Game g = new Game(gameID, status, width, height, player0, player1, null, null);
-							list.add(g);
-						} catch(Exception e) { 
-							continue;
-						}
-					}
-					return new Result<ArrayList<Game>>(list);
-				} catch(Exception e) {
-					return new Result<ArrayList<Game>>(APIStatus.error);
-				}
-			case 400:
-				return new Result<ArrayList<Game>>(APIStatus.invalid);
-			case 403:
-				return new Result<ArrayList<Game>>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<ArrayList<Game>>(APIStatus.notFound);
-			case 500:
-				return new Result<ArrayList<Game>>(APIStatus.serverError);
-			default:
-				return new Result<ArrayList<Game>>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<ArrayList<Game>>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<ArrayList<Game>>(APIStatus.error);
-		}
+		return copy(this.streamConditional("/get", (Reader in) -> decodeGames(in)));
+	}
+	
+	/**
+	 * Fetches all publicly visible games, handing each game to the given consumer as soon as it has been received
+	 * instead of waiting for the complete list.
+	 * @see fences.Client#getPublicGames()
+	 * @author Jakob Danckwerts
+	 */
+	public APIStatus getPublicGames(Consumer<Game> consumer) {
+		return this.stream("/get", in -> decodeGames(in, consumer)).status();
+	}
+	
+	/**
+	 * Asynchronously fetches all publicly visible games.
+	 * @see fences.Client#getPublicGames()
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<ArrayList<Game>>> getPublicGamesAsync() {
+		return this.sendConditionalAsync("/get", (byte[] body) -> decodeGames(body)).thenApply(Client::copy);
+	}
+	
+	/**
+	 * Copies a list of games, so that callers may modify it without affecting the list remembered for conditional requests.
+	 */
+	private static Result<ArrayList<Game>> copy(Result<ArrayList<Game>> result) {
+		if(result.value() == null) return result;
+		return new Result<ArrayList<Game>>(result.status(), new ArrayList<Game>(result.value()));
 	}
 	
 	/**
@@ -186,107 +383,83 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<Game> getGame(long gameID) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/game/get?gameID=" + gameID))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<Game>(APIStatus.error);
-					
-					long id = (Long) o.get("gameID");
-					Game.Status status = Game.Status.from((Long) o.get("status"));
-					Long width = (Long) o.get("width");
-					Long height = (Long) o.get("height");
-					Long player0 = (Long) o.get("player0");
-					Long player1 = (Long) o.get("player1");
-					
-					long activePlayerInteger = (Long) o.get("currentPlayer");
-					boolean activePlayer = activePlayerInteger == 1;
-					
-					String contentString = (String) o.get("content");
-					char[] contentChars = contentString.toCharArray();
-					Game.Field[] content = new Game.Field[contentChars.length];
-					for(int i = 0; i<contentChars.length; i++) {
-						content[i] = Game.Field.from(Integer.parseInt(contentChars[i] + ""));
-					}
-					
-					return new Result<Game>(new Game(id, status, width, height, player0, player1, activePlayer, content));
-				} catch(Exception e) {
-					return new Result<Game>(APIStatus.error);
-				}
-			case 400:
-				return new Result<Game>(APIStatus.invalid);
-			case 403:
-				return new Result<Game>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<Game>(APIStatus.notFound);
-			case 500:
-				return new Result<Game>(APIStatus.serverError);
-			default:
-				return new Result<Game>(APIStatus.error);
+		Game cached = this.gameCache != null ? this.gameCache.get(gameID) : null;
+		if(cached != null) return new Result<Game>(cached);
+		return this.rememberGame(gameID, this.sendShared("/game/get?gameID=" + gameID, Client::decodeGame, true));
+	}
+	
+	/**
+	 * Asynchronously fetches a single game which is identified by the given ID number.
+	 * @see fences.Client#getGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Game>> getGameAsync(long gameID) {
+		Game cached = this.gameCache != null ? this.gameCache.get(gameID) : null;
+		if(cached != null) return CompletableFuture.completedFuture(new Result<Game>(cached));
+		return this.sendSharedAsync("/game/get?gameID=" + gameID, Client::decodeGame, true).thenApply(result -> this.rememberGame(gameID, result));
+	}
+	
+	private Result<Game> rememberGame(long gameID, Result<Game> result) {
+		if(this.gameCache != null && result.value() != null && result.value().status() == Game.Status.finished) this.gameCache.put(gameID, result.value());
+		return result;
+	}
+	
+	/**
+	 * Watches the game identified by the given ID, calling the listener whenever it changes, until it has finished or the listener is removed from the returned watch.<br>
+	 * Listeners of the same game share a single watch, so the game is fetched once per poll regardless of the number of listeners.
+	 * Polling follows the default <code>Backoff</code>.
+	 * @see fences.GameWatch
+	 * @author Jakob Danckwerts
+	 */
+	public GameWatch watchGame(long gameID, GameListener listener) {
+		return this.watchGame(gameID, listener, new Backoff());
+	}
+	
+	/**
+	 * Watches the game identified by the given ID, polling it with the given backoff if it is not watched yet.
+	 * @see fences.Client#watchGame(long, GameListener)
+	 * @author Jakob Danckwerts
+	 */
+	public GameWatch watchGame(long gameID, GameListener listener, Backoff backoff) {
+		while(true) {
+			GameWatch created = new GameWatch(this, gameID);
+			GameWatch watch = this.watches.putIfAbsent(gameID, created);
+			if(watch == null) {
+				// started only once it is in the map, since a watch that ends removes itself from the map
+				created.add(listener);
+				created.start(this.scheduler(), backoff);
+				return created;
 			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<Game>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<Game>(APIStatus.error);
+			if(watch.add(listener)) return watch;
+			// the watch has just ended, remove it unless that has happened already and try again
+			this.watches.remove(gameID, watch);
 		}
 	}
 	
+	void unwatch(GameWatch watch) {
+		this.watches.remove(watch.id(), watch);
+	}
+	
+	private synchronized PollScheduler scheduler() {
+		if(this.scheduler == null) this.scheduler = this.executor != null ? new PollScheduler(this.executor) : new PollScheduler();
+		return this.scheduler;
+	}
+	
 	/**
 	 * Requests to create a new game.
 	 * @author Jakob Danckwerts
 	 */
 	public Result<Game> createGame() {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/game/create"))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					if(o == null) return new Result<Game>(APIStatus.error);
-					
-					return new Result<Game>(new Game((Long) o.get("gameID")));
-				} catch(Exception e) {
-					return new Result<Game>(APIStatus.error);
-				}
-			case 400:
-				return new Result<Game>(APIStatus.invalid);
-			case 403:
-				return new Result<Game>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<Game>(APIStatus.notFound);
-			case 500:
-				return new Result<Game>(APIStatus.serverError);
-			default:
-				return new Result<Game>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<Game>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<Game>(APIStatus.error);
-		}
+		return this.send("/game/create", Client::decodeGameID);
+	}
+	
+	/**
+	 * Asynchronously requests to create a new game.
+	 * @see fences.Client#createGame()
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Game>> createGameAsync() {
+		return this.sendAsync("/game/create", Client::decodeGameID);
 	}
 	
 	/**
@@ -294,48 +467,25 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<Player> getPlayer(long playerID) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/player/get?playerID=" + playerID))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<Player>(APIStatus.error);
-					
-					long id = (Long) o.get("playerID");
-					String name = (String) o.get("name");
-					
-					return new Result<Player>(new Player(id, name));
-				} catch(Exception e) {
-					return new Result<Player>(APIStatus.error);
-				}
-			case 400:
-				return new Result<Player>(APIStatus.invalid);
-			case 403:
-				return new Result<Player>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<Player>(APIStatus.notFound);
-			case 500:
-				return new Result<Player>(APIStatus.serverError);
-			default:
-				return new Result<Player>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<Player>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<Player>(APIStatus.error);
-		}
+		Player cached = this.playerCache != null ? this.playerCache.get(playerID) : null;
+		if(cached != null) return new Result<Player>(cached);
+		return this.rememberPlayer(playerID, this.sendShared("/player/get?playerID=" + playerID, Client::decodePlayer, false));
+	}
+	
+	/**
+	 * Asynchronously fetches a single player which is identified by the given ID number.
+	 * @see fences.Client#getPlayer(long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Player>> getPlayerAsync(long playerID) {
+		Player cached = this.playerCache != null ? this.playerCache.get(playerID) : null;
+		if(cached != null) return CompletableFuture.completedFuture(new Result<Player>(cached));
+		return this.sendSharedAsync("/player/get?playerID=" + playerID, Client::decodePlayer, false).thenApply(result -> this.rememberPlayer(playerID, result));
+	}
+	
+	private Result<Player> rememberPlayer(long playerID, Result<Player> result) {
+		if(this.playerCache != null && result.status() == APIStatus.ok && result.value() != null) this.playerCache.put(playerID, result.value());
+		return result;
 	}
 	
 	/**
@@ -344,44 +494,16 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<Player> createPlayer(String name) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/player/create?name=" + name))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					if(o == null) return new Result<Player>(APIStatus.error);
-					
-					return new Result<Player>(new Player((Long) o.get("playerID")));
-				} catch(Exception e) {
-					return new Result<Player>(APIStatus.error);
-				}
-			case 400:
-				return new Result<Player>(APIStatus.invalid);
-			case 403:
-				return new Result<Player>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<Player>(APIStatus.notFound);
-			case 500:
-				return new Result<Player>(APIStatus.serverError);
-			default:
-				return new Result<Player>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<Player>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<Player>(APIStatus.error);
-		}
+		return this.send("/player/create?name=" + name, Client::decodePlayer);
+	}
+	
+	/**
+	 * Asynchronously requests to create a new player with the given name.
+	 * @see fences.Client#createPlayer(String)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<Player>> createPlayerAsync(String name) {
+		return this.sendAsync("/player/create?name=" + name, Client::decodePlayer);
 	}
 	
 	/**
@@ -389,49 +511,16 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<JoinResult> joinGame(long gameID, long playerID) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/game/join?gameID=" + gameID + "&playerID=" + playerID))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<JoinResult>(APIStatus.error);
-					
-					long gID = (Long) o.get("gameID");
-					long pID = (Long) o.get("playerID");
-					Long roleNumber = (Long) o.get("player");
-					
-					return new Result<JoinResult>(new JoinResult(gID, pID, roleNumber == 1));
-				} catch(Exception e) {
-					return new Result<JoinResult>(APIStatus.error);
-				}
-			case 400:
-				return new Result<JoinResult>(APIStatus.invalid);
-			case 403:
-				return new Result<JoinResult>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<JoinResult>(APIStatus.notFound);
-			case 500:
-				return new Result<JoinResult>(APIStatus.serverError);
-			default:
-				return new Result<JoinResult>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<JoinResult>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<JoinResult>(APIStatus.error);
-		}
+		return this.changedGame(gameID, this.send("/game/join?gameID=" + gameID + "&playerID=" + playerID, Client::decodeJoinResult));
+	}
+	
+	/**
+	 * Asynchronously requests that a specific player, identified by <code>playerID</code>, joins a specific game, identified by <code>gameID</code>.
+	 * @see fences.Client#joinGame(long, long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<JoinResult>> joinGameAsync(long gameID, long playerID) {
+		return this.sendAsync("/game/join?gameID=" + gameID + "&playerID=" + playerID, Client::decodeJoinResult).thenApply(result -> this.changedGame(gameID, result));
 	}
 	
 	/**
@@ -439,49 +528,16 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<JoinResult> findGame(long playerID) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/game/find?playerID=" + playerID))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<JoinResult>(APIStatus.error);
-					
-					long gID = (Long) o.get("gameID");
-					long pID = (Long) o.get("playerID");
-					Long roleNumber = (Long) o.get("player");
-					
-					return new Result<JoinResult>(new JoinResult(gID, pID, roleNumber == 1));
-				} catch(Exception e) {
-					return new Result<JoinResult>(APIStatus.error);
-				}
-			case 400:
-				return new Result<JoinResult>(APIStatus.invalid);
-			case 403:
-				return new Result<JoinResult>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<JoinResult>(APIStatus.notFound);
-			case 500:
-				return new Result<JoinResult>(APIStatus.serverError);
-			default:
-				return new Result<JoinResult>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<JoinResult>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<JoinResult>(APIStatus.error);
-		}
+		return this.joinedGame(this.send("/game/find?playerID=" + playerID, Client::decodeJoinResult));
+	}
+	
+	/**
+	 * Asynchronously requests that the player identified by the given ID number joins an available game.
+	 * @see fences.Client#findGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<JoinResult>> findGameAsync(long playerID) {
+		return this.sendAsync("/game/find?playerID=" + playerID, Client::decodeJoinResult).thenApply(this::joinedGame);
 	}
 	
 	/**
@@ -494,48 +550,31 @@ public class Client {
 	 * @author Jakob Danckwerts
 	 */
 	public Result<TurnResult> makeTurn(long gameID, long playerID, long x, long y) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/game/set-field?gameID=" + gameID + "&playerID=" + playerID + "&x=" + x + "&y=" + y))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<TurnResult>(APIStatus.error);
-					
-					long id = (Long) o.get("gameID");
-					Boolean winner = (Boolean) o.get("winner");
-					
-					return new Result<TurnResult>(new TurnResult(id, winner));
-				} catch(Exception e) {
-					return new Result<TurnResult>(APIStatus.error);
-				}
-			case 400:
-				return new Result<TurnResult>(APIStatus.invalid);
-			case 403:
-				return new Result<TurnResult>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<TurnResult>(APIStatus.notFound);
-			case 500:
-				return new Result<TurnResult>(APIStatus.serverError);
-			default:
-				return new Result<TurnResult>(APIStatus.error);
-			}
-		} catch(IOException e) {
-			e.printStackTrace();
-			return new Result<TurnResult>(APIStatus.error);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
-			return new Result<TurnResult>(APIStatus.error);
-		}
+		return this.changedGame(gameID, this.send("/game/set-field?gameID=" + gameID + "&playerID=" + playerID + "&x=" + x + "&y=" + y, Client::decodeTurnResult));
+	}
+	
+	/**
+	 * Asynchronously requests that the player identified by <code>playerID</code> makes a turn in the game identified by <code>gameID</code>.
+	 * @see fences.Client#makeTurn(long, long, long, long)
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<Result<TurnResult>> makeTurnAsync(long gameID, long playerID, long x, long y) {
+		return this.sendAsync("/game/set-field?gameID=" + gameID + "&playerID=" + playerID + "&x=" + x + "&y=" + y, Client::decodeTurnResult)
+				.thenApply(result -> this.changedGame(gameID, result));
+	}
+	
+	/**
+	 * Called once a request that may have changed the given game has completed. A <code>getGame</code> that is still in flight may have been answered
+	 * before the change, so it is no longer shared with later callers, who fetch the game again and see their own change.
+	 */
+	private <T> T changedGame(long gameID, T result) {
+		if(this.inFlight != null) this.inFlight.remove("/game/get?gameID=" + gameID);
+		return result;
+	}
+	
+	private Result<JoinResult> joinedGame(Result<JoinResult> result) {
+		if(result.value() != null) this.changedGame(result.value().game().id(), result);
+		return result;
 	}
 	
 	/**
@@ -546,266 +585,546 @@ public class Client {
 	 * @see fences.Client#createToken(String)
 	 */
 	public Result<ArrayList<Game>> getAllGames(AdminToken token) {
+		return this.stream("/get-all?sessionID=" + token.sessionID + "&key=" + token.token, (Reader in) -> decodeGames(in));
+	}
+	
+	/**
+	 * Fetches all games, not only the public ones, handing each game to the given consumer as soon as it has been received
+	 * instead of waiting for the complete list.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.Client#getAllGames(AdminToken)
+	 */
+	public APIStatus getAllGames(AdminToken token, Consumer<Game> consumer) {
+		return this.stream("/get-all?sessionID=" + token.sessionID + "&key=" + token.token, in -> decodeGames(in, consumer)).status();
+	}
+	
+	/**
+	 * Asynchronously fetches all games, not only the public ones.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.Client#getAllGames(AdminToken)
+	 */
+	public CompletableFuture<Result<ArrayList<Game>>> getAllGamesAsync(AdminToken token) {
+		return this.sendAsync("/get-all?sessionID=" + token.sessionID + "&key=" + token.token, (byte[] body) -> decodeGames(body));
+	}
+	
+	/**
+	 * Requests that the game identified by <code>gameID</code> is deleted.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.AdminToken
+	 * @see fences.Client#createToken(String)
+	 */
+	public Result<Game> deleteGame(AdminToken token, long gameID) {
+		if(this.gameCache != null) this.gameCache.invalidate(gameID);
+		return this.send("/game/delete?gameID=" + gameID + "&sessionID=" + token.sessionID + "&key=" + token.token, Client::decodeGameID);
+	}
+	
+	/**
+	 * Asynchronously requests that the game identified by <code>gameID</code> is deleted.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.Client#deleteGame(AdminToken, long)
+	 */
+	public CompletableFuture<Result<Game>> deleteGameAsync(AdminToken token, long gameID) {
+		if(this.gameCache != null) this.gameCache.invalidate(gameID);
+		return this.sendAsync("/game/delete?gameID=" + gameID + "&sessionID=" + token.sessionID + "&key=" + token.token, Client::decodeGameID);
+	}
+	
+	/**
+	 * Requests the deletion of all games.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.AdminToken
+	 * @see fences.Client#createToken(String)
+	 */
+	public APIStatus deleteAllGames(AdminToken token) {
+		if(this.gameCache != null) this.gameCache.clear();
+		return this.send("/delete-all?sessionID=" + token.sessionID + "&key=" + token.token, null).status();
+	}
+	
+	/**
+	 * Asynchronously requests the deletion of all games.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.Client#deleteAllGames(AdminToken)
+	 */
+	public CompletableFuture<APIStatus> deleteAllGamesAsync(AdminToken token) {
+		if(this.gameCache != null) this.gameCache.clear();
+		return this.sendAsync("/delete-all?sessionID=" + token.sessionID + "&key=" + token.token, null).thenApply(Result::status);
+	}
+	
+	/**
+	 * Requests the start of the game. Only valid in tournament mode.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.AdminToken
+	 * @see fences.Client#createToken(String)
+	 */
+	public APIStatus startTournament(AdminToken token) {
+		return this.send("/tournament/start?sessionID=" + token.sessionID + "&key=" + token.token, null).status();
+	}
+	
+	/**
+	 * Asynchronously requests the start of the game. Only valid in tournament mode.<br>
+	 * Requires administrator authentication.
+	 * @author Jakob Danckwerts
+	 * @see fences.Client#startTournament(AdminToken)
+	 */
+	public CompletableFuture<APIStatus> startTournamentAsync(AdminToken token) {
+		return this.sendAsync("/tournament/start?sessionID=" + token.sessionID + "&key=" + token.token, null).thenApply(Result::status);
+	}
+	
+	/**
+	 * Requests and generates a single-use administrator token for privileged API access.
+	 * @author Jakob Danckwerts
+	 * @see fences.AdminToken
+	 */
+	public Result<AdminToken> createToken(String authKey) {
+		return this.send("/key", this::decodeToken);
+	}
+	
+	/**
+	 * Asynchronously requests and generates a single-use administrator token for privileged API access.
+	 * @author Jakob Danckwerts
+	 * @see fences.Client#createToken(String)
+	 */
+	public CompletableFuture<Result<AdminToken>> createTokenAsync(String authKey) {
+		return this.sendAsync("/key", this::decodeToken);
+	}
+	
+	/**
+	 * Decodes the body of a successful API response. Returning <code>null</code> or throwing results in <code>APIStatus.error</code>.
+	 * @author Jakob Danckwerts
+	 */
+	@FunctionalInterface
+	protected interface Decoder<T> {
+		T decode(byte[] body) throws Exception;
+	}
+	
+	private HttpRequest request(String path, String etag) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder()
+				.uri(URI.create(this.parentURL + path));
+		if(this.requestTimeout != null) builder.timeout(this.requestTimeout);
+		if(etag != null) builder.header("If-None-Match", etag);
+		return builder.build();
+	}
+	
+	/**
+	 * Returns a new measurement for a request to the given path, or <code>null</code> if metrics are not recorded.
+	 */
+	private Metrics.Sample sample(String path) {
+		return this.metrics == null ? null : this.metrics.sample(path);
+	}
+	
+	/**
+	 * Completes the measurement of a request once its result has been decoded.
+	 */
+	private static <T> Result<T> measured(Metrics.Sample sample, Result<T> result) {
+		if(sample != null) sample.decoded();
+		return result;
+	}
+	
+	private <B> HttpResponse<B> exchange(String path, String etag, BodyHandler<B> handler, Metrics.Sample sample) throws IOException, InterruptedException {
+		BodyHandler<B> measured = sample == null ? handler : sample.measure(handler);
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/get-all?sessionID=" + token.sessionID + "&key=" + token.token))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
+			if(this.limiter == null) {
+				if(sample != null) sample.start();
+				return this.client.send(this.request(path, etag), measured);
+			}
 			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONArray array = (JSONArray)parser.parse(body);
-					ArrayList<Game> list = new ArrayList<>();
-					
-					for(Object obj : array) {
-						if(obj == null) continue;
-						JSONObject o = (JSONObject) obj;
-						
+			this.limiter.acquireBlocking();
+			// the permit is held until the body has been consumed, which for streamed bodies is after send returns
+			RequestLimiter.Permit permit = this.limiter.permit();
+			try {
+				// time spent waiting for a permit is not part of the network time
+				if(sample != null) sample.start();
+				return this.client.send(this.request(path, etag), permit.holding(measured));
+			} catch(IOException | InterruptedException | RuntimeException e) {
+				permit.release();
+				throw e;
+			}
+		} catch(IOException | InterruptedException e) {
+			if(sample != null) sample.failed();
+			throw e;
+		}
+	}
+	
+	private <B> CompletableFuture<HttpResponse<B>> exchangeAsync(String path, String etag, BodyHandler<B> handler, Metrics.Sample sample) {
+		BodyHandler<B> measured = sample == null ? handler : sample.measure(handler);
+		CompletableFuture<HttpResponse<B>> response;
+		if(this.limiter == null) {
+			if(sample != null) sample.start();
+			response = this.client.sendAsync(this.request(path, etag), measured);
+		} else {
+			RequestLimiter limiter = this.limiter;
+			response = limiter.acquire()
+					.thenCompose(v -> {
+						RequestLimiter.Permit permit = limiter.permit();
+						if(sample != null) sample.start();
 						try {
-							long gameID = (Long) o.get("gameID");
-							Game.Status status = Game.Status.from((Long) o.get("status"));
-							Long width = (Long) o.get("width");
-							Long height = (Long) o.get("height");
-							Long player0 = (Long) o.get("player0");
-							Long player1 = (Long) o.get("player1");
-							Game g = new Game(gameID, status, width, height, player0, player1, null, null);
-							list.add(g);
-						} catch(Exception e) { 
-							continue;
+							return this.client.sendAsync(this.request(path, etag), permit.holding(measured))
+									.whenComplete((r, e) -> {
+										if(e != null) permit.release();
+									});
+						} catch(RuntimeException e) {
+							permit.release();
+							throw e;
 						}
-					}
-					return new Result<ArrayList<Game>>(list);
-				} catch(Exception e) {
-					e.printStackTrace();
-					return new Result<ArrayList<Game>>(APIStatus.error);
-				}
-			case 400:
-				return new Result<ArrayList<Game>>(APIStatus.invalid);
-			case 401:
-			case 403:
-				return new Result<ArrayList<Game>>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<ArrayList<Game>>(APIStatus.notFound);
-			case 500:
-				return new Result<ArrayList<Game>>(APIStatus.serverError);
-			default:
-				return new Result<ArrayList<Game>>(APIStatus.error);
-			}
+					});
+		}
+		if(sample == null) return response;
+		return response.whenComplete((r, e) -> {
+			if(e != null) sample.failed();
+		});
+	}
+	
+	/**
+	 * Sends a request to the given API path, blocking until the response has arrived and has been decoded.
+	 * A <code>null</code> decoder only evaluates the status code.
+	 * @author Jakob Danckwerts
+	 */
+	protected <T> Result<T> send(String path, Decoder<T> decoder) {
+		Metrics.Sample sample = this.sample(path);
+		try {
+			HttpResponse<byte[]> response = this.exchange(path, null, BodyHandlers.ofByteArray(), sample);
+			return measured(sample, handle(response.statusCode(), response.body(), decoder));
 		} catch(IOException e) {
 			e.printStackTrace();
-			return new Result<ArrayList<Game>>(APIStatus.error);
+			return Result.<T>failed(e);
 		} catch(InterruptedException e) {
 			e.printStackTrace();
-			return new Result<ArrayList<Game>>(APIStatus.error);
+			return Result.<T>failed(e);
 		}
 	}
 	
 	/**
-	 * Requests that the game identified by <code>gameID</code> is deleted.<br>
-	 * Requires administrator authentication.
+	 * Sends a request to the given API path without blocking. Decoding takes place once the response has arrived,
+	 * so the returned future never completes exceptionally; transport failures are reported as <code>APIStatus.error</code>.
 	 * @author Jakob Danckwerts
-	 * @see fences.AdminToken
-	 * @see fences.Client#createToken(String)
 	 */
-	public Result<Game> deleteGame(AdminToken token, long gameID) {
+	protected <T> CompletableFuture<Result<T>> sendAsync(String path, Decoder<T> decoder) {
+		Metrics.Sample sample = this.sample(path);
+		CompletableFuture<HttpResponse<byte[]>> response = this.exchangeAsync(path, null, BodyHandlers.ofByteArray(), sample);
+		CompletableFuture<Result<T>> result;
+		if(this.executor != null) {
+			result = response.thenApplyAsync(r -> measured(sample, handle(r.statusCode(), r.body(), decoder)), this.executor);
+		} else {
+			result = response.thenApply(r -> measured(sample, handle(r.statusCode(), r.body(), decoder)));
+		}
+		return result.exceptionally(e -> {
+			e.printStackTrace();
+			return Result.<T>failed(e);
+		});
+	}
+	
+	/**
+	 * Sends a request like {@link #send(String, Decoder)}, but if the response to the previous identical request carried an <code>ETag</code>,
+	 * asks the server to answer with status 304 if nothing has changed, in which case the previously decoded value is returned.
+	 * @see fences.Client.Builder#conditionalRequests(int)
+	 * @author Jakob Danckwerts
+	 */
+	protected <T> Result<T> sendConditional(String path, Decoder<T> decoder) {
+		if(this.validators == null) return this.send(path, decoder);
+		Validated cached = this.validators.get(path);
+		Metrics.Sample sample = this.sample(path);
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/game/delete?gameID=" + gameID + "&sessionID=" + token.sessionID + "&key=" + token.token))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<Game>(APIStatus.error);
-					
-					long id = (Long) o.get("gameID");
-					return new Result<Game>(new Game(id));
-				} catch(Exception e) {
-					e.printStackTrace();
-					return new Result<Game>(APIStatus.error);
-				}
-			case 400:
-				return new Result<Game>(APIStatus.invalid);
-			case 401:
-			case 403:
-				return new Result<Game>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<Game>(APIStatus.notFound);
-			case 500:
-				return new Result<Game>(APIStatus.serverError);
-			default:
-				return new Result<Game>(APIStatus.error);
-			}
+			return measured(sample, this.exchange(path, cached != null ? cached.etag : null, this.conditional(path, cached, decoding(decoder)), sample).body().get());
 		} catch(IOException e) {
 			e.printStackTrace();
-			return new Result<Game>(APIStatus.error);
+			return Result.<T>failed(e);
 		} catch(InterruptedException e) {
 			e.printStackTrace();
-			return new Result<Game>(APIStatus.error);
+			return Result.<T>failed(e);
 		}
 	}
 	
 	/**
-	 * Requests the deletion of all games.<br>
-	 * Requires administrator authentication.
+	 * Sends a conditional request like {@link #sendConditional(String, Decoder)} without blocking.
+	 * @see fences.Client#sendAsync(String, Decoder)
 	 * @author Jakob Danckwerts
-	 * @see fences.AdminToken
-	 * @see fences.Client#createToken(String)
 	 */
-	public APIStatus deleteAllGames(AdminToken token) {
+	protected <T> CompletableFuture<Result<T>> sendConditionalAsync(String path, Decoder<T> decoder) {
+		if(this.validators == null) return this.sendAsync(path, decoder);
+		Validated cached = this.validators.get(path);
+		Metrics.Sample sample = this.sample(path);
+		CompletableFuture<HttpResponse<Supplier<Result<T>>>> response = this.exchangeAsync(path, cached != null ? cached.etag : null, this.conditional(path, cached, decoding(decoder)), sample);
+		CompletableFuture<Result<T>> result;
+		if(this.executor != null) {
+			result = response.thenApplyAsync(r -> measured(sample, r.body().get()), this.executor);
+		} else {
+			result = response.thenApply(r -> measured(sample, r.body().get()));
+		}
+		return result.exceptionally(e -> {
+			e.printStackTrace();
+			return Result.<T>failed(e);
+		});
+	}
+	
+	/**
+	 * Sends a conditional request like {@link #sendConditional(String, Decoder)}, decoding the body while it is being received.
+	 * @see fences.Client#stream(String, StreamDecoder)
+	 * @author Jakob Danckwerts
+	 */
+	protected <T> Result<T> streamConditional(String path, StreamDecoder<T> decoder) {
+		if(this.validators == null) return this.stream(path, decoder);
+		Validated cached = this.validators.get(path);
+		Metrics.Sample sample = this.sample(path);
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/delete-all?sessionID=" + token.sessionID + "&key=" + token.token))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				return APIStatus.ok;
-			case 400:
-				return APIStatus.invalid;
-			case 401:
-			case 403:
-				return response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden;
-			case 404:
-				return APIStatus.notFound;
-			case 500:
-				return APIStatus.serverError;
-			default:
-				return APIStatus.error;
-			}
+			return measured(sample, this.exchange(path, cached != null ? cached.etag : null, this.conditional(path, cached, streaming(decoder)), sample).body().get());
 		} catch(IOException e) {
 			e.printStackTrace();
-			return APIStatus.error;
+			return Result.<T>failed(e);
 		} catch(InterruptedException e) {
 			e.printStackTrace();
-			return APIStatus.error;
+			return Result.<T>failed(e);
 		}
 	}
 	
 	/**
-	 * Requests the start of the game. Only valid in tournament mode.<br>
-	 * Requires administrator authentication.
+	 * The <code>ETag</code> of a response together with the value decoded from it.
+	 */
+	private static class Validated {
+		final String etag;
+		final Object value;
+		
+		Validated(String etag, Object value) {
+			this.etag = etag;
+			this.value = value;
+		}
+	}
+	
+	/**
+	 * Wraps a body handler so that a 304 response yields the remembered value without reading the body,
+	 * and a successfully decoded response with an <code>ETag</code> is remembered for the next request.
 	 * @author Jakob Danckwerts
-	 * @see fences.AdminToken
-	 * @see fences.Client#createToken(String)
 	 */
-	public APIStatus startTournament(AdminToken token) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/tournament/start?sessionID=" + token.sessionID + "&key=" + token.token))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				return APIStatus.ok;
-			case 400:
-				return APIStatus.invalid;
-			case 401:
-			case 403:
-				return response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden;
-			case 404:
-				return APIStatus.notFound;
-			case 500:
-				return APIStatus.serverError;
-			default:
-				return APIStatus.error;
+	@SuppressWarnings("unchecked")
+	private <T> BodyHandler<Supplier<Result<T>>> conditional(String path, Validated cached, BodyHandler<Supplier<Result<T>>> handler) {
+		return info -> {
+			if(info.statusCode() == 304 && cached != null) {
+				return BodySubscribers.replacing(() -> new Result<T>((T) cached.value));
 			}
-		} catch(IOException e) {
+			String etag = info.headers().firstValue("ETag").orElse(null);
+			return BodySubscribers.mapping(handler.apply(info), decode -> () -> {
+				Result<T> result = decode.get();
+				if(etag != null && result.value() != null) this.validators.put(path, new Validated(etag, result.value()));
+				else this.validators.invalidate(path);
+				return result;
+			});
+		};
+	}
+	
+	/**
+	 * Creates a body handler that receives the whole body and defers decoding it to the returned supplier.
+	 * @author Jakob Danckwerts
+	 */
+	private static <T> BodyHandler<Supplier<Result<T>>> decoding(Decoder<T> decoder) {
+		return info -> {
+			int code = info.statusCode();
+			return BodySubscribers.mapping(BodySubscribers.ofByteArray(), body -> () -> handle(code, body, decoder));
+		};
+	}
+	
+	/**
+	 * Sends a read-only request like {@link #send(String, Decoder)}, but if an identical request is already in flight, waits for its result instead.
+	 * If <code>conditional</code> is <code>true</code>, the request is sent like {@link #sendConditional(String, Decoder)}.
+	 * @author Jakob Danckwerts
+	 */
+	protected <T> Result<T> sendShared(String path, Decoder<T> decoder, boolean conditional) {
+		if(this.inFlight == null) return conditional ? this.sendConditional(path, decoder) : this.send(path, decoder);
+		try {
+			return this.sendSharedAsync(path, decoder, conditional).get();
+		} catch(ExecutionException e) {
 			e.printStackTrace();
-			return APIStatus.error;
+			return Result.<T>failed(e.getCause());
 		} catch(InterruptedException e) {
 			e.printStackTrace();
-			return APIStatus.error;
+			return Result.<T>failed(e);
 		}
 	}
 	
 	/**
-	 * Requests and generates a single-use administrator token for privileged API access.
+	 * Sends a read-only request like {@link #sendAsync(String, Decoder)}, but if an identical request is already in flight, shares its result instead ("single flight").
+	 * If <code>conditional</code> is <code>true</code>, the request is sent like {@link #sendConditionalAsync(String, Decoder)}.
+	 * The path identifies the request, so it must always be used with the same decoder.
+	 * Every caller receives its own future, so cancelling or completing it does not affect the others.
 	 * @author Jakob Danckwerts
-	 * @see fences.AdminToken
 	 */
-	public Result<AdminToken> createToken(String authKey) {
+	@SuppressWarnings("unchecked")
+	protected <T> CompletableFuture<Result<T>> sendSharedAsync(String path, Decoder<T> decoder, boolean conditional) {
+		if(this.inFlight == null) return conditional ? this.sendConditionalAsync(path, decoder) : this.sendAsync(path, decoder);
+		
+		CompletableFuture<Result<T>> flight = new CompletableFuture<Result<T>>();
+		CompletableFuture<?> existing = this.inFlight.putIfAbsent(path, flight);
+		if(existing != null) return ((CompletableFuture<Result<T>>) existing).copy();
+		
+		CompletableFuture<Result<T>> request = conditional ? this.sendConditionalAsync(path, decoder) : this.sendAsync(path, decoder);
+		request.whenComplete((result, e) -> {
+			// leave the map first, so that requests arriving from now on fetch a fresh result
+			this.inFlight.remove(path, flight);
+			if(e != null) flight.completeExceptionally(e);
+			else flight.complete(result);
+		});
+		return flight.copy();
+	}
+	
+	/**
+	 * Decodes the body of a successful API response while it is still being received.
+	 * Returning <code>null</code> or throwing results in <code>APIStatus.error</code>.
+	 * @author Jakob Danckwerts
+	 */
+	@FunctionalInterface
+	protected interface StreamDecoder<T> {
+		T decode(Reader in) throws Exception;
+	}
+	
+	/**
+	 * Sends a request to the given API path and decodes the response body straight from the connection, blocking until it has been read completely.
+	 * Unlike {@link #send(String, Decoder)}, the body is never held in memory as a whole.
+	 * @author Jakob Danckwerts
+	 */
+	protected <T> Result<T> stream(String path, StreamDecoder<T> decoder) {
+		Metrics.Sample sample = this.sample(path);
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(this.parentURL + "/key"))
-					.build();
-			HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
-			
-			int code = response.statusCode();
-			switch(code) {
-			case 200:
-				String body = response.body();
-				
-				try {
-					JSONParser parser = new JSONParser();
-					JSONObject o = (JSONObject)parser.parse(body);
-					
-					if(o == null) return new Result<AdminToken>(APIStatus.error);
-					
-					String sessionID = (String) o.get("sessionID");
-					
-					String dataString = (String) o.get("puk");
-					String[] dataSplit = dataString.split("-");
-					byte[] data = new byte[dataSplit.length];
-					for(int i = 0; i<dataSplit.length; i++) {
-						data[i] = (byte) Short.parseShort(dataSplit[i]);
-					}
-
-			        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(data);
-			        PublicKey key = keyFactory.generatePublic(keySpec);
-			        
-			        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-			    	cipher.init(Cipher.ENCRYPT_MODE, key);
-			    	byte[] encrypted = cipher.doFinal("0eea8ab0-6788-4f8d-8f41-0283b07f8d06".getBytes());
-			    	
-			    	String s = "";
-			    	if(encrypted.length > 1) {
-			    		for(int i = 0; i<encrypted.length-1; i++) {
-			    			s += encrypted[i] + ",";
-			    		}
-			    		s += encrypted[encrypted.length-1];
-			    	} else if(encrypted.length == 1) {
-			    		s = "" + encrypted[0];
-			    	}
-			        
-			        return new Result<AdminToken>(new AdminToken(sessionID, s));
-				} catch(Exception e) {
-					e.printStackTrace();
-					return new Result<AdminToken>(APIStatus.error);
-				}
-			case 400:
-				return new Result<AdminToken>(APIStatus.invalid);
-			case 403:
-				return new Result<AdminToken>(response.body() == "tournament" ? APIStatus.tournamentForbidden : APIStatus.forbidden);
-			case 404:
-				return new Result<AdminToken>(APIStatus.notFound);
-			case 500:
-				return new Result<AdminToken>(APIStatus.serverError);
-			default:
-				return new Result<AdminToken>(APIStatus.error);
-			}
+			return measured(sample, this.exchange(path, null, streaming(decoder), sample).body().get());
 		} catch(IOException e) {
 			e.printStackTrace();
-			return new Result<AdminToken>(APIStatus.error);
+			return Result.<T>failed(e);
 		} catch(InterruptedException e) {
 			e.printStackTrace();
-			return new Result<AdminToken>(APIStatus.error);
+			return Result.<T>failed(e);
 		}
 	}
+	
+	/**
+	 * Creates a body handler that, for successful responses, hands the body stream to the decoder.
+	 * Decoding is deferred to the returned supplier so that it runs on the calling thread and not on one of the HTTP client's threads.
+	 * @author Jakob Danckwerts
+	 */
+	private static <T> BodyHandler<Supplier<Result<T>>> streaming(StreamDecoder<T> decoder) {
+		return info -> {
+			int code = info.statusCode();
+			if(code != 200) {
+				return BodySubscribers.mapping(BodySubscribers.ofString(StandardCharsets.UTF_8), body -> () -> new Result<T>(status(code, body)));
+			}
+			return BodySubscribers.mapping(BodySubscribers.ofInputStream(), in -> () -> {
+				try(Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+					T value = decoder.decode(reader);
+					if(value == null) return new Result<T>(APIStatus.error);
+					return new Result<T>(value);
+				} catch(Exception e) {
+					return new Result<T>(APIStatus.error);
+				}
+			});
+		};
+	}
+	
+	static <T> Result<T> handle(int code, byte[] body, Decoder<T> decoder) {
+		if(code != 200) return new Result<T>(status(code, new String(body, StandardCharsets.UTF_8)));
+		if(decoder == null) return new Result<T>();
+		
+		try {
+			T value = decoder.decode(body);
+			if(value == null) return new Result<T>(APIStatus.error);
+			return new Result<T>(value);
+		} catch(Exception e) {
+			return new Result<T>(APIStatus.error);
+		}
+	}
+	
+	static APIStatus status(int code, String body) {
+		switch(code) {
+		case 200:
+			return APIStatus.ok;
+		case 400:
+			return APIStatus.invalid;
+		case 401:
+		case 403:
+			return "tournament".equals(body) ? APIStatus.tournamentForbidden : APIStatus.forbidden;
+		case 404:
+			return APIStatus.notFound;
+		case 500:
+			return APIStatus.serverError;
+		default:
+			return APIStatus.error;
+		}
+	}
+	
+	private static ArrayList<Game> decodeGames(byte[] body) throws ParseException {
+		ArrayList<Game> list = new ArrayList<>();
+		new GameBinder(list::add).bind(body);
+		return list;
+	}
+	
+	private static ArrayList<Game> decodeGames(Reader in) throws IOException, ParseException {
+		ArrayList<Game> list = new ArrayList<>();
+		new GameBinder(list::add).bind(in);
+		return list;
+	}
+	
+	private static Boolean decodeGames(Reader in, Consumer<Game> consumer) throws IOException, ParseException {
+		new GameBinder(consumer).bind(in);
+		return true;
+	}
+	
+	private static Game decodeGame(byte[] body) throws ParseException {
+		return new GameBinder(GameBinder.FULL).bind(body);
+	}
+	
+	private static Game decodeGameID(byte[] body) throws ParseException {
+		return new GameBinder(GameBinder.ID).bind(body);
+	}
+	
+	private static Player decodePlayer(byte[] body) throws ParseException {
+		return new PlayerBinder().bind(body);
+	}
+	
+	private static JoinResult decodeJoinResult(byte[] body) throws ParseException {
+		return new JoinResultBinder().bind(body);
+	}
+	
+	private static TurnResult decodeTurnResult(byte[] body) throws ParseException {
+		return new TurnResultBinder().bind(body);
+	}
+	
+	private AdminToken decodeToken(byte[] body) throws Exception {
+		JSONObject o;
+		JSONParser parser = ObjectBinder.PARSERS.acquire();
+		try {
+			o = (JSONObject)parser.parse(body);
+		} finally {
+			ObjectBinder.PARSERS.release(parser);
+		}
+		if(o == null) return null;
+		
+		String sessionID = (String) o.get("sessionID");
+		
+		String dataString = (String) o.get("puk");
+		String[] dataSplit = dataString.split("-");
+		byte[] data = new byte[dataSplit.length];
+		for(int i = 0; i<dataSplit.length; i++) {
+			data[i] = (byte) Short.parseShort(dataSplit[i]);
+		}
+		
+		X509EncodedKeySpec keySpec = new X509EncodedKeySpec(data);
+		PublicKey key = keyFactory.generatePublic(keySpec);
+		
+		Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+		cipher.init(Cipher.ENCRYPT_MODE, key);
+		byte[] encrypted = cipher.doFinal("0eea8ab0-6788-4f8d-8f41-0283b07f8d06".getBytes());
+		
+		String s = "";
+		if(encrypted.length > 1) {
+			for(int i = 0; i<encrypted.length-1; i++) {
+				s += encrypted[i] + ",";
+			}
+			s += encrypted[encrypted.length-1];
+		} else if(encrypted.length == 1) {
+			s = "" + encrypted[0];
+		}
+		
+		return new AdminToken(sessionID, s);
+	}
 }
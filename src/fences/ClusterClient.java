@@ -0,0 +1,563 @@
+package fences;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A <code>ClusterClient</code> spreads the requests of a program over several API servers, e.g. the ones found by a <code>ServerScanner</code>.<br><br>
+ * New games and players are created on the server expected to answer fastest, either the one with the fewest outstanding requests
+ * or the one with the lowest average latency, weighted by its outstanding requests. Only servers running the latest version are chosen,
+ * where versions differing in their fix number only count as equal, unless all of them are failing.<br>
+ * Since games and players exist on a single server only, each ID returned by a server is pinned to that server and all further requests for it are sent there.
+ * IDs that are not pinned yet, e.g. of games created by another program, are looked up on all servers.
+ * Since every server counts its IDs on its own, two servers may hand out the same ID. Such an ID is flagged as ambiguous instead of being pinned to either server,
+ * and requests giving only the ID are answered with <code>invalid</code>. Every method therefore returns the server that answered together with its result,
+ * and has a variant taking that server, which sends the request straight to it, so a game or player can always be reached by its server and ID.<br>
+ * If a request that creates something cannot be sent because its server cannot be connected to, it is retried on the next server.
+ * Any other failure is returned as it is, since the server may have created the game or player already.
+ * Failing servers are avoided for a while. Requests for pinned games and players are not retried elsewhere, since no other server knows them.
+ * @see fences.ServerScanner
+ * @author Jakob Danckwerts
+ */
+public class ClusterClient {
+	
+	/**
+	 * The strategy used to choose the server for a new game or player.
+	 * <code>leastOutstanding</code> chooses the server with the fewest requests in flight, <code>latency</code> the one with the lowest
+	 * moving average of its response time multiplied by the number of its requests in flight plus one.
+	 * @author Jakob Danckwerts
+	 */
+	public static enum Balancing {
+		leastOutstanding, latency
+	}
+	
+	/**
+	 * A single server of a <code>ClusterClient</code> together with the statistics used to choose between the servers.
+	 * @author Jakob Danckwerts
+	 */
+	public static class Node {
+		protected final ServerInfo server;
+		protected final Client client;
+		private final AtomicInteger outstanding = new AtomicInteger();
+		private final AtomicLong latency = new AtomicLong(-1);
+		private volatile long avoidUntil;
+		
+		protected Node(ServerInfo server, Client client) {
+			this.server = server;
+			this.client = client;
+		}
+		
+		public ServerInfo server() {
+			return server;
+		}
+		
+		public Client client() {
+			return client;
+		}
+		
+		/**
+		 * Returns the number of requests currently in flight.
+		 * @author Jakob Danckwerts
+		 */
+		public int outstanding() {
+			return outstanding.get();
+		}
+		
+		/**
+		 * Returns the moving average of the response time in nanoseconds, or -1 if no response has been received yet.
+		 * @author Jakob Danckwerts
+		 */
+		public long latency() {
+			return latency.get();
+		}
+		
+		/**
+		 * Returns whether the server has failed recently and is therefore avoided.
+		 * @author Jakob Danckwerts
+		 */
+		public boolean isAvoided() {
+			return System.nanoTime() - avoidUntil < 0;
+		}
+		
+		public String toString() {
+			return "Node { server=" + server + ", outstanding=" + outstanding() + ", latency=" + latency() + ", avoided=" + isAvoided() + " }";
+		}
+		
+		private void record(long nanos) {
+			long previous;
+			long next;
+			do {
+				previous = latency.get();
+				// each response moves the average a fifth of the way, so the average follows a slowing server within a few requests
+				next = previous < 0 ? nanos : previous + (nanos - previous) / 5;
+			} while(!latency.compareAndSet(previous, next));
+		}
+	}
+	
+	protected final List<Node> nodes;
+	protected Balancing balancing = Balancing.latency;
+	protected long avoidFor = 5_000_000_000L;
+	private final ConcurrentHashMap<Long, Node> games = new ConcurrentHashMap<Long, Node>();
+	private final ConcurrentHashMap<Long, Node> players = new ConcurrentHashMap<Long, Node>();
+	private final Set<Long> ambiguousGames = ConcurrentHashMap.newKeySet();
+	private final Set<Long> ambiguousPlayers = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Creates a cluster of the given servers, each used by a <code>Client</code> with the default configuration.
+	 * @author Jakob Danckwerts
+	 */
+	public ClusterClient(Collection<ServerInfo> servers) {
+		this(servers, server -> new Client.Builder(server.address(), server.port()).build());
+	}
+	
+	/**
+	 * Creates a cluster of the given servers, each used by the <code>Client</code> returned by the given factory.
+	 * @author Jakob Danckwerts
+	 */
+	public ClusterClient(Collection<ServerInfo> servers, Function<ServerInfo, Client> factory) {
+		if(servers.isEmpty()) throw new IllegalArgumentException("At least one server is required");
+		ArrayList<Node> nodes = new ArrayList<Node>(servers.size());
+		for(ServerInfo server: servers) nodes.add(new Node(server, factory.apply(server)));
+		this.nodes = Collections.unmodifiableList(nodes);
+	}
+	
+	/**
+	 * Sets the strategy used to choose the server for a new game or player. The default is <code>latency</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public ClusterClient balancing(Balancing balancing) {
+		this.balancing = balancing;
+		return this;
+	}
+	
+	/**
+	 * Sets how long a server is avoided after a failed request, in milliseconds. The default is 5 seconds.
+	 * @author Jakob Danckwerts
+	 */
+	public ClusterClient avoidFor(long millis) {
+		if(millis < 0) throw new IllegalArgumentException("millis must not be negative");
+		this.avoidFor = millis * 1_000_000;
+		return this;
+	}
+	
+	/**
+	 * Returns the servers of this cluster.
+	 * @author Jakob Danckwerts
+	 */
+	public List<Node> nodes() {
+		return nodes;
+	}
+	
+	/**
+	 * Returns the server the given game is pinned to, or <code>null</code> if it is not known yet or is ambiguous.
+	 * The server's <code>Client</code> can be used for requests not offered by the <code>ClusterClient</code>, like <code>watchGame</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public Node nodeOfGame(long gameID) {
+		return games.get(gameID);
+	}
+	
+	/**
+	 * Returns the server the given player is pinned to, or <code>null</code> if it is not known yet or is ambiguous.
+	 * @author Jakob Danckwerts
+	 */
+	public Node nodeOfPlayer(long playerID) {
+		return players.get(playerID);
+	}
+	
+	/**
+	 * Returns whether more than one server is known to have a game with the given ID, so that the ID alone does not tell which one is meant.
+	 * @author Jakob Danckwerts
+	 */
+	public boolean isAmbiguousGame(long gameID) {
+		return ambiguousGames.contains(gameID);
+	}
+	
+	/**
+	 * Returns whether more than one server is known to have a player with the given ID, so that the ID alone does not tell which one is meant.
+	 * @author Jakob Danckwerts
+	 */
+	public boolean isAmbiguousPlayer(long playerID) {
+		return ambiguousPlayers.contains(playerID);
+	}
+	
+	/**
+	 * Creates a game on the server chosen by the balancing strategy. The returned result names that server,
+	 * which can be passed to the methods taking a node in case the game's ID turns out to be ambiguous.
+	 * @see fences.Client#createGame()
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<Game> createGame() {
+		return createGameAsync().join();
+	}
+	
+	public CompletableFuture<Routed<Game>> createGameAsync() {
+		return balanced(Client::createGameAsync).thenApply(routed -> {
+			if(routed.status() == APIStatus.ok) pinGame(routed.value(), routed.node);
+			return routed;
+		});
+	}
+	
+	/**
+	 * Creates a player on the server chosen by the balancing strategy. The returned result names that server.
+	 * @see fences.Client#createPlayer(String)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<Player> createPlayer(String name) {
+		return createPlayerAsync(name).join();
+	}
+	
+	public CompletableFuture<Routed<Player>> createPlayerAsync(String name) {
+		return balanced(client -> client.createPlayerAsync(name)).thenApply(routed -> {
+			if(routed.status() == APIStatus.ok && routed.value() != null) pin(players, ambiguousPlayers, routed.value().id(), routed.node);
+			return routed;
+		});
+	}
+	
+	/**
+	 * Lets the player join a game on the player's server. Players that are not pinned yet are looked up on all servers first.
+	 * @see fences.Client#findGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<JoinResult> findGame(long playerID) {
+		return findGameAsync(playerID).join();
+	}
+	
+	public CompletableFuture<Routed<JoinResult>> findGameAsync(long playerID) {
+		return onPlayer(playerID, client -> client.findGameAsync(playerID)).thenApply(this::pinJoined);
+	}
+	
+	/**
+	 * Lets the player join a game on the given server.
+	 * @see fences.ClusterClient#findGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<JoinResult> findGame(Node node, long playerID) {
+		return findGameAsync(node, playerID).join();
+	}
+	
+	public CompletableFuture<Routed<JoinResult>> findGameAsync(Node node, long playerID) {
+		return direct(node, client -> client.findGameAsync(playerID)).thenApply(this::pinJoined);
+	}
+	
+	/**
+	 * Lets the player join the given game on the game's server.
+	 * @see fences.Client#joinGame(long, long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<JoinResult> joinGame(long gameID, long playerID) {
+		return joinGameAsync(gameID, playerID).join();
+	}
+	
+	public CompletableFuture<Routed<JoinResult>> joinGameAsync(long gameID, long playerID) {
+		return onGame(gameID, client -> client.joinGameAsync(gameID, playerID)).thenApply(this::pinJoined);
+	}
+	
+	/**
+	 * Lets the player join the given game on the given server.
+	 * @see fences.ClusterClient#joinGame(long, long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<JoinResult> joinGame(Node node, long gameID, long playerID) {
+		return joinGameAsync(node, gameID, playerID).join();
+	}
+	
+	public CompletableFuture<Routed<JoinResult>> joinGameAsync(Node node, long gameID, long playerID) {
+		return direct(node, client -> client.joinGameAsync(gameID, playerID)).thenApply(this::pinJoined);
+	}
+	
+	/**
+	 * Fetches the given game from the game's server.
+	 * @see fences.Client#getGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<Game> getGame(long gameID) {
+		return getGameAsync(gameID).join();
+	}
+	
+	public CompletableFuture<Routed<Game>> getGameAsync(long gameID) {
+		Node node = games.get(gameID);
+		if(node != null) return direct(node, client -> client.getGameAsync(gameID));
+		return locate(games, ambiguousGames, client -> client.getGameAsync(gameID), gameID, false);
+	}
+	
+	/**
+	 * Fetches the given game from the given server.
+	 * @see fences.ClusterClient#getGame(long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<Game> getGame(Node node, long gameID) {
+		return getGameAsync(node, gameID).join();
+	}
+	
+	public CompletableFuture<Routed<Game>> getGameAsync(Node node, long gameID) {
+		return direct(node, client -> client.getGameAsync(gameID));
+	}
+	
+	/**
+	 * Fetches the given player from the player's server.
+	 * @see fences.Client#getPlayer(long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<Player> getPlayer(long playerID) {
+		return getPlayerAsync(playerID).join();
+	}
+	
+	public CompletableFuture<Routed<Player>> getPlayerAsync(long playerID) {
+		Node node = players.get(playerID);
+		if(node != null) return direct(node, client -> client.getPlayerAsync(playerID));
+		return locate(players, ambiguousPlayers, client -> client.getPlayerAsync(playerID), playerID, false);
+	}
+	
+	/**
+	 * Fetches the given player from the given server.
+	 * @see fences.ClusterClient#getPlayer(long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<Player> getPlayer(Node node, long playerID) {
+		return getPlayerAsync(node, playerID).join();
+	}
+	
+	public CompletableFuture<Routed<Player>> getPlayerAsync(Node node, long playerID) {
+		return direct(node, client -> client.getPlayerAsync(playerID));
+	}
+	
+	/**
+	 * Makes a turn in the given game on the game's server.
+	 * @see fences.Client#makeTurn(long, long, long, long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<TurnResult> makeTurn(long gameID, long playerID, long x, long y) {
+		return makeTurnAsync(gameID, playerID, x, y).join();
+	}
+	
+	public CompletableFuture<Routed<TurnResult>> makeTurnAsync(long gameID, long playerID, long x, long y) {
+		return onGame(gameID, client -> client.makeTurnAsync(gameID, playerID, x, y));
+	}
+	
+	/**
+	 * Makes a turn in the given game on the given server.
+	 * @see fences.ClusterClient#makeTurn(long, long, long, long)
+	 * @author Jakob Danckwerts
+	 */
+	public Routed<TurnResult> makeTurn(Node node, long gameID, long playerID, long x, long y) {
+		return makeTurnAsync(node, gameID, playerID, x, y).join();
+	}
+	
+	public CompletableFuture<Routed<TurnResult>> makeTurnAsync(Node node, long gameID, long playerID, long x, long y) {
+		return direct(node, client -> client.makeTurnAsync(gameID, playerID, x, y));
+	}
+	
+	/**
+	 * The <code>Result</code> of a request made through a <code>ClusterClient</code> together with the server that answered it.
+	 * The node is <code>null</code> if no server could be chosen, e.g. because the ID is not known to any server or is ambiguous.<br>
+	 * Since two servers may hand out the same ID, a game or player is only identified by its ID together with its node.
+	 * Passing the node to the methods taking one sends the request straight to that server, which works for ambiguous IDs as well.
+	 * @author Jakob Danckwerts
+	 */
+	public static class Routed<T> extends Result<T> {
+		protected final Node node;
+		
+		protected Routed(Node node, Result<T> result) {
+			super(result);
+			this.node = node;
+		}
+		
+		/**
+		 * Returns the server that answered the request, or <code>null</code> if none did.
+		 * @author Jakob Danckwerts
+		 */
+		public Node node() {
+			return node;
+		}
+	}
+	
+	/**
+	 * Sends a request to the given server, whether or not the ID it concerns is pinned to it.
+	 */
+	private <T> CompletableFuture<Routed<T>> direct(Node node, Function<Client, CompletableFuture<Result<T>>> request) {
+		return call(node, request).thenApply(result -> new Routed<T>(node, result));
+	}
+	
+	/**
+	 * Sends a request to the best server, trying the next best one only if the request could not be sent at all.
+	 */
+	private <T> CompletableFuture<Routed<T>> balanced(Function<Client, CompletableFuture<Result<T>>> request) {
+		return balanced(request, new HashSet<Node>());
+	}
+	
+	private <T> CompletableFuture<Routed<T>> balanced(Function<Client, CompletableFuture<Result<T>>> request, Set<Node> tried) {
+		Node node = choose(tried);
+		tried.add(node);
+		return call(node, request).thenCompose(result -> {
+			if(unsent(result) && tried.size() < nodes.size()) return balanced(request, tried);
+			return CompletableFuture.completedFuture(new Routed<T>(node, result));
+		});
+	}
+	
+	/**
+	 * Sends a request for a game to the server it is pinned to. If it is not pinned yet, the game is located on all servers first,
+	 * so that a request changing the game is never sent to a server that might have a different game with the same ID.
+	 */
+	private <T> CompletableFuture<Routed<T>> onGame(long gameID, Function<Client, CompletableFuture<Result<T>>> request) {
+		return on(games, ambiguousGames, client -> client.getGameAsync(gameID), gameID, request);
+	}
+	
+	/**
+	 * Sends a request for a player to the server it is pinned to, locating the player on all servers first like <code>onGame</code>.
+	 */
+	private <T> CompletableFuture<Routed<T>> onPlayer(long playerID, Function<Client, CompletableFuture<Result<T>>> request) {
+		return on(players, ambiguousPlayers, client -> client.getPlayerAsync(playerID), playerID, request);
+	}
+	
+	private <T, L> CompletableFuture<Routed<T>> on(ConcurrentHashMap<Long, Node> pins, Set<Long> ambiguous, Function<Client, CompletableFuture<Result<L>>> lookup, long id,
+			Function<Client, CompletableFuture<Result<T>>> request) {
+		Node node = pins.get(id);
+		if(node != null) return direct(node, request);
+		return locate(pins, ambiguous, lookup, id, true).thenCompose(located -> {
+			if(located.node == null) return CompletableFuture.completedFuture(new Routed<T>(null, new Result<T>(located.status())));
+			return direct(located.node, request);
+		});
+	}
+	
+	/**
+	 * Sends a read request for a game or player that is not pinned yet to all servers and pins the ID to the server that knows it.
+	 * If more than one server knows it, the ID is flagged as ambiguous and <code>invalid</code> is returned.
+	 * Unless <code>all</code> is <code>true</code>, the first server knowing the ID is returned without waiting for the others,
+	 * which is enough for reads, while requests changing something wait until every server has answered.
+	 */
+	private <T> CompletableFuture<Routed<T>> locate(ConcurrentHashMap<Long, Node> pins, Set<Long> ambiguous, Function<Client, CompletableFuture<Result<T>>> request, long id, boolean all) {
+		if(ambiguous.contains(id)) return CompletableFuture.completedFuture(new Routed<T>(null, new Result<T>(APIStatus.invalid)));
+		CompletableFuture<Routed<T>> found = new CompletableFuture<Routed<T>>();
+		AtomicReference<Routed<T>> known = new AtomicReference<Routed<T>>();
+		AtomicInteger remaining = new AtomicInteger(nodes.size());
+		for(Node candidate: nodes) {
+			call(candidate, request).thenAccept(result -> {
+				// the ID is pinned before the result is handed on, and only the server it was pinned to may hand on its result
+				if(result.status() == APIStatus.ok && pin(pins, ambiguous, id, candidate)) {
+					known.compareAndSet(null, new Routed<T>(candidate, result));
+					if(!all) found.complete(known.get());
+				}
+				if(remaining.decrementAndGet() > 0) return;
+				if(ambiguous.contains(id)) found.complete(new Routed<T>(null, new Result<T>(APIStatus.invalid)));
+				else if(known.get() != null) found.complete(known.get());
+				// without any server knowing the ID, the status of the last answer is returned
+				else found.complete(new Routed<T>(null, result));
+			});
+		}
+		return found;
+	}
+	
+	/**
+	 * Sends a request to the given server, keeping track of its outstanding requests, latency and failures.
+	 */
+	private <T> CompletableFuture<Result<T>> call(Node node, Function<Client, CompletableFuture<Result<T>>> request) {
+		node.outstanding.incrementAndGet();
+		long start = System.nanoTime();
+		CompletableFuture<Result<T>> future;
+		try {
+			future = request.apply(node.client);
+		} catch(RuntimeException e) {
+			future = CompletableFuture.completedFuture(Result.<T>failed(e));
+		}
+		return future.exceptionally(e -> Result.<T>failed(e)).thenApply(result -> {
+			node.outstanding.decrementAndGet();
+			if(failed(result)) {
+				node.avoidUntil = System.nanoTime() + avoidFor;
+			} else {
+				node.record(System.nanoTime() - start);
+				node.avoidUntil = 0;
+			}
+			return result;
+		});
+	}
+	
+	/**
+	 * Chooses the server for a new game or player among the servers that have not been tried yet.
+	 */
+	private Node choose(Set<Node> tried) {
+		Version latest = null;
+		for(Node node: nodes) {
+			if(tried.contains(node) || node.isAvoided()) continue;
+			if(latest == null || node.server.version().compareTo(latest) > 0) latest = node.server.version();
+		}
+		Node best = null;
+		double bestCost = 0;
+		for(Node node: nodes) {
+			if(tried.contains(node)) continue;
+			// servers that are failing or outdated are only chosen if nothing else is left
+			if(latest != null && (node.isAvoided() || !sameRelease(node.server.version(), latest))) continue;
+			double cost = cost(node);
+			if(best == null || cost < bestCost) {
+				best = node;
+				bestCost = cost;
+			}
+		}
+		return best;
+	}
+	
+	private double cost(Node node) {
+		int outstanding = node.outstanding();
+		long latency = Math.max(0, node.latency());
+		if(balancing == Balancing.leastOutstanding) return outstanding + latency / 1e12;
+		// servers without a measured latency cost nothing, so each of them is tried early on
+		return (double) latency * (outstanding + 1);
+	}
+	
+	private static boolean sameRelease(Version a, Version b) {
+		return a.getMajor() == b.getMajor() && a.getMinor() == b.getMinor();
+	}
+	
+	private static boolean failed(Result<?> result) {
+		return result.status() == APIStatus.serverError || result.status() == APIStatus.error;
+	}
+	
+	/**
+	 * Returns whether a request failed before it could reach its server, so that sending it to another server cannot make anything happen twice.
+	 */
+	private static boolean unsent(Result<?> result) {
+		for(Throwable cause = result.cause(); cause != null; cause = cause.getCause()) {
+			if(cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Pins the ID to the given server and returns whether it is pinned to it. An ID that is already pinned to another server is not moved,
+	 * but flagged as ambiguous and no longer pinned at all, since it no longer tells which of the servers is meant.
+	 */
+	private static boolean pin(ConcurrentHashMap<Long, Node> pins, Set<Long> ambiguous, long id, Node node) {
+		synchronized(pins) {
+			if(ambiguous.contains(id)) return false;
+			Node pinned = pins.putIfAbsent(id, node);
+			if(pinned == null || pinned == node) return true;
+			ambiguous.add(id);
+			pins.remove(id);
+			return false;
+		}
+	}
+	
+	private void pinGame(Game game, Node node) {
+		if(game != null) pin(games, ambiguousGames, game.id(), node);
+	}
+	
+	private Routed<JoinResult> pinJoined(Routed<JoinResult> routed) {
+		if(routed.node != null && routed.status() == APIStatus.ok && routed.value() != null) {
+			pinGame(routed.value().game(), routed.node);
+			if(routed.value().player() != null) pin(players, ambiguousPlayers, routed.value().player().id(), routed.node);
+		}
+		return routed;
+	}
+}
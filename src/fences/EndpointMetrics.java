@@ -0,0 +1,160 @@
+package fences;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <code>EndpointMetrics</code> hold the measurements of all requests to one API endpoint: the number of requests and failures,
+ * how often each status code was returned, the number of bytes received and histograms of the network and decoding times.<br>
+ * A request that could not be completed, e.g. because the server could not be reached, counts as a failure and is not part of the histograms.
+ * @see fences.Metrics
+ * @author Jakob Danckwerts
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean {
+	protected final String endpoint;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final AtomicLongArray statusCodes = new AtomicLongArray(600);
+	private final Histogram network = new Histogram();
+	private final Histogram decode = new Histogram();
+	
+	EndpointMetrics(String endpoint) {
+		this.endpoint = endpoint;
+	}
+	
+	void record(int statusCode, long bytes, long networkNanos, long decodeNanos) {
+		count.increment();
+		bytesIn.add(bytes);
+		// unusual status codes share the counter of code 0
+		statusCodes.incrementAndGet(statusCode > 0 && statusCode < 600 ? statusCode : 0);
+		network.record(networkNanos);
+		decode.record(decodeNanos);
+	}
+	
+	void fail() {
+		count.increment();
+		failures.increment();
+	}
+	
+	/**
+	 * Returns the histogram of the times in nanoseconds from sending a request until the last byte of the response has been received.
+	 * @author Jakob Danckwerts
+	 */
+	public Histogram network() {
+		return network;
+	}
+	
+	/**
+	 * Returns the histogram of the times in nanoseconds needed to decode a response once it has been received.
+	 * For responses that are decoded while being received, only the part after the last byte counts.
+	 * @author Jakob Danckwerts
+	 */
+	public Histogram decode() {
+		return decode;
+	}
+	
+	/**
+	 * Returns the number of requests that received the given status code.
+	 * @author Jakob Danckwerts
+	 */
+	public long count(int statusCode) {
+		return statusCode > 0 && statusCode < 600 ? statusCodes.get(statusCode) : 0;
+	}
+	
+	@Override
+	public String getEndpoint() {
+		return endpoint;
+	}
+	
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+	
+	@Override
+	public long getFailures() {
+		return failures.sum();
+	}
+	
+	@Override
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+	
+	@Override
+	public Map<String, Long> getStatusCodes() {
+		TreeMap<String, Long> codes = new TreeMap<String, Long>();
+		for(int i = 0; i<statusCodes.length(); i++) {
+			long n = statusCodes.get(i);
+			if(n > 0) codes.put(i == 0 ? "other" : Integer.toString(i), n);
+		}
+		return codes;
+	}
+	
+	@Override
+	public double getNetworkP50() {
+		return millis(network.percentile(50));
+	}
+	
+	@Override
+	public double getNetworkP99() {
+		return millis(network.percentile(99));
+	}
+	
+	@Override
+	public double getNetworkP999() {
+		return millis(network.percentile(99.9));
+	}
+	
+	@Override
+	public double getNetworkMax() {
+		return millis(network.max());
+	}
+	
+	@Override
+	public double getDecodeP50() {
+		return millis(decode.percentile(50));
+	}
+	
+	@Override
+	public double getDecodeP99() {
+		return millis(decode.percentile(99));
+	}
+	
+	@Override
+	public double getDecodeP999() {
+		return millis(decode.percentile(99.9));
+	}
+	
+	@Override
+	public double getDecodeMax() {
+		return millis(decode.max());
+	}
+	
+	/**
+	 * Removes all measurements.
+	 * @author Jakob Danckwerts
+	 */
+	@Override
+	public void reset() {
+		count.reset();
+		failures.reset();
+		bytesIn.reset();
+		for(int i = 0; i<statusCodes.length(); i++) statusCodes.set(i, 0);
+		network.reset();
+		decode.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return "EndpointMetrics { endpoint=" + endpoint + ", count=" + getCount() + ", failures=" + getFailures() + ", bytesIn=" + getBytesIn()
+				+ ", statusCodes=" + getStatusCodes() + ", network=" + network + ", decode=" + decode + " }";
+	}
+	
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
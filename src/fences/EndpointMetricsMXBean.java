@@ -0,0 +1,26 @@
+package fences;
+
+import java.util.Map;
+
+/**
+ * The management interface of <code>EndpointMetrics</code>, through which the metrics of each endpoint are shown by JMX tools like JConsole.
+ * Times are given in milliseconds.
+ * @see fences.Metrics#registerMBeans(String)
+ * @author Jakob Danckwerts
+ */
+public interface EndpointMetricsMXBean {
+	String getEndpoint();
+	long getCount();
+	long getFailures();
+	long getBytesIn();
+	Map<String, Long> getStatusCodes();
+	double getNetworkP50();
+	double getNetworkP99();
+	double getNetworkP999();
+	double getNetworkMax();
+	double getDecodeP50();
+	double getDecodeP99();
+	double getDecodeP999();
+	double getDecodeMax();
+	void reset();
+}
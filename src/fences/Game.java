@@ -26,11 +26,11 @@ public class Game {
 			this.value = value;
 		}
 		
+		private static final Status[] VALUES = values();
+		
 		public static Status from(long value) {
-			for(Status s : Status.values()) {
-				if(s.value == value) return s;
-			}
-			return null;
+			if(value < 1 || value > VALUES.length) return null;
+			return VALUES[(int) value - 1];
 		}
 		
 		public String toString() {
@@ -56,11 +56,11 @@ public class Game {
 			this.value = value;
 		}
 		
+		private static final Field[] VALUES = values();
+		
 		public static Field from(int value) {
-			for(Field f : Field.values()) {
-				if(f.value == value) return f;
-			}
-			return null;
+			if(value < 0 || value >= VALUES.length) return null;
+			return VALUES[value];
 		}
 		
 		public String toString() {
@@ -75,13 +75,20 @@ public class Game {
 	protected Long player0;
 	protected Long player1;
 	protected Boolean activePlayer;
-	protected Field[] content;
+	protected Board board;
+	// built from the board on first use; volatile since the same game may be handed to several threads
+	protected volatile Field[] content;
 	
 	public Game(long gameID) {
 		this.gameID = gameID;
 	}
 	
 	public Game(long gameID, Status status, Long width, Long height, Long player0, Long player1, Boolean activePlayer, Field[] content) {
+		this(gameID, status, width, height, player0, player1, activePlayer, content != null ? new Board(content) : null);
+		this.content = content != null ? content.clone() : null;
+	}
+	
+	protected Game(long gameID, Status status, Long width, Long height, Long player0, Long player1, Boolean activePlayer, Board board) {
 		this.gameID = gameID;
 		this.status = status;
 		this.width = width;
@@ -89,7 +96,7 @@ public class Game {
 		this.player0 = player0;
 		this.player1 = player1;
 		this.activePlayer = activePlayer;
-		this.content = content;
+		this.board = board;
 	}
 	
 	@Override
@@ -101,7 +108,7 @@ public class Game {
 		+ (this.player0 != null ? ", player0=" + player0 : "")
 		+ (this.player1 != null ? ", player1=" + player1 : "")
 		+ (this.activePlayer != null ? ", activePlayer=" + activePlayer : "")
-		+ (this.content != null ? ", content=[" + contentString() + "]" : "")
+		+ (this.board != null ? ", content=[" + contentString() + "]" : "")
 		+ " }";
 	}
 	
@@ -166,11 +173,26 @@ public class Game {
 	
 	/**
 	 * Returns the board of this game, consisting of <code>Field</code> values.
-	 * The board is stored as a single concatenation of all its rows, starting at the top left corner.
+	 * The board is stored as a single concatenation of all its rows, starting at the top left corner.<br>
+	 * Each call returns a new array, so changing it does not affect this game, which may be shared with other callers.
+	 * @see fences.Game#board()
 	 * @author Jakob Danckwerts
 	 */
 	public Field[] content() {
-		return content;
+		if(board == null) return null;
+		Field[] content = this.content;
+		if(content == null) this.content = content = board.toFields();
+		return content.clone();
+	}
+	
+	/**
+	 * Returns the board of this game in its compact form, which is better suited for copying, hashing and comparing boards.
+	 * Each call returns a new copy, so changing it does not affect this game, which may be shared with other callers.
+	 * Returns <code>null</code> if the board is unknown.
+	 * @author Jakob Danckwerts
+	 */
+	public Board board() {
+		return board != null ? board.copy() : null;
 	}
 	
 	/**
@@ -178,12 +200,7 @@ public class Game {
 	 * @author Jakob Danckwerts
 	 */
 	public String contentString() {
-		if(content == null) return null;
-		
-		String s = "";
-		for(Field f : content) {
-			s += f;
-		}
-		return s;
+		if(board == null) return null;
+		return board.toString();
 	}
 }
\ No newline at end of file
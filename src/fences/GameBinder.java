@@ -0,0 +1,99 @@
+package fences;
+
+import java.util.function.Consumer;
+
+/**
+ * A <code>GameBinder</code> creates <code>Game</code> objects from the JSON representation sent by the API.
+ * Depending on the endpoint, a game is represented only by its ID, by a summary without board, or completely.
+ * @author Jakob Danckwerts
+ */
+class GameBinder extends ObjectBinder<Game> {
+	static final int ID = 0;
+	static final int SUMMARY = 1;
+	static final int FULL = 2;
+	
+	private int detail;
+	
+	private Long gameID;
+	private Long status;
+	private Long width;
+	private Long height;
+	private Long player0;
+	private Long player1;
+	private Long currentPlayer;
+	private String content;
+	
+	GameBinder(int detail) {
+		super();
+		this.detail = detail;
+	}
+	
+	/**
+	 * Creates a binder for a list of game summaries.
+	 * @author Jakob Danckwerts
+	 */
+	GameBinder(Consumer<Game> consumer) {
+		super(consumer);
+		this.detail = SUMMARY;
+	}
+	
+	@Override
+	protected void begin() {
+		gameID = null;
+		status = null;
+		width = null;
+		height = null;
+		player0 = null;
+		player1 = null;
+		currentPlayer = null;
+		content = null;
+	}
+	
+	@Override
+	protected void field(String key, Object value) {
+		switch(key) {
+		case "gameID":
+			gameID = number(value);
+			break;
+		case "status":
+			status = number(value);
+			break;
+		case "width":
+			width = number(value);
+			break;
+		case "height":
+			height = number(value);
+			break;
+		case "player0":
+			player0 = number(value);
+			break;
+		case "player1":
+			player1 = number(value);
+			break;
+		case "currentPlayer":
+			currentPlayer = number(value);
+			break;
+		case "content":
+			content = value instanceof String ? (String) value : null;
+			break;
+		}
+	}
+	
+	@Override
+	protected Game end() {
+		if(gameID == null) return null;
+		if(detail == ID) return new Game(gameID);
+		
+		if(status == null) return null;
+		if(detail == SUMMARY) return new Game(gameID, Game.Status.from(status), width, height, player0, player1, null, (Board) null);
+		
+		if(currentPlayer == null || content == null) return null;
+		Board board;
+		try {
+			board = Board.parse(content);
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+		return new Game(gameID, Game.Status.from(status), width, height, player0, player1, currentPlayer == 1, board);
+	}
+}
@@ -0,0 +1,48 @@
+package fences;
+
+/**
+ * A <code>GameListener</code> is notified of changes of a game watched with <code>Client.watchGame</code>.
+ * All methods do nothing by default, so only the interesting ones need to be implemented.<br>
+ * The listeners of a game are called one after another on a thread of the client's executor, so they should return quickly.
+ * @see fences.Client#watchGame(long, GameListener)
+ * @author Jakob Danckwerts
+ */
+public interface GameListener {
+	
+	/**
+	 * Called with the first state of the game that is known to the listener and after every change.
+	 * It follows the calls of the more specific methods describing the change.
+	 * @author Jakob Danckwerts
+	 */
+	default void gameChanged(Game game) {
+	}
+	
+	/**
+	 * Called for every fence that has been placed since the previous state, with the coordinates used by <code>Client.makeTurn</code>.
+	 * <code>field</code> tells which player has placed the fence.
+	 * @author Jakob Danckwerts
+	 */
+	default void moveMade(Game game, Move move, Game.Field field) {
+	}
+	
+	/**
+	 * Called when a player has joined the game, as player 1 if <code>role</code> is <code>true</code> or as player 0 otherwise.
+	 * @author Jakob Danckwerts
+	 */
+	default void playerJoined(Game game, long playerID, boolean role) {
+	}
+	
+	/**
+	 * Called when the status of the game has changed from <code>previous</code> to the game's current status.
+	 * @author Jakob Danckwerts
+	 */
+	default void statusChanged(Game game, Game.Status previous) {
+	}
+	
+	/**
+	 * Called once the game has finished. The game is not watched any longer afterwards.
+	 * @author Jakob Danckwerts
+	 */
+	default void finished(Game game) {
+	}
+}
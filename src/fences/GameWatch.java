@@ -0,0 +1,200 @@
+package fences;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A <code>GameWatch</code> polls a single game and notifies its listeners of changes. It is created by <code>Client.watchGame</code>,
+ * which lets all listeners of the same game share one watch, so the game is fetched once per poll no matter how many listeners there are.<br>
+ * Each fetched game is compared to the state each listener has seen last, boards by their bit masks, and listeners are only called if something has changed.
+ * The watch ends when the game has finished, when it is cancelled or when its last listener has been removed.
+ * @see fences.Client#watchGame(long, GameListener)
+ * @author Jakob Danckwerts
+ */
+public class GameWatch {
+	protected final Client client;
+	protected final long gameID;
+	private final CopyOnWriteArrayList<Watcher> watchers = new CopyOnWriteArrayList<Watcher>();
+	private volatile Game game;
+	private volatile boolean cancelled;
+	private PollScheduler.Handle handle;
+	
+	GameWatch(Client client, long gameID) {
+		this.client = client;
+		this.gameID = gameID;
+	}
+	
+	synchronized void start(PollScheduler scheduler, Backoff backoff) {
+		if(cancelled) return;
+		this.handle = scheduler.poll(this::poll, backoff);
+	}
+	
+	/**
+	 * Returns the ID of the watched game.
+	 * @author Jakob Danckwerts
+	 */
+	public long id() {
+		return gameID;
+	}
+	
+	/**
+	 * Returns the latest state of the game, or <code>null</code> if it has not been fetched yet.
+	 * @author Jakob Danckwerts
+	 */
+	public Game game() {
+		return game;
+	}
+	
+	/**
+	 * Returns whether this watch has ended. Listeners added to <code>Client.watchGame</code> afterwards start a new watch.
+	 * @author Jakob Danckwerts
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Adds a listener. If the game is already known, the listener's <code>gameChanged</code> is called with it right away.
+	 * Returns <code>false</code> if the watch has already ended.
+	 */
+	synchronized boolean add(GameListener listener) {
+		if(cancelled) return false;
+		Watcher watcher = new Watcher(listener);
+		watchers.add(watcher);
+		watcher.seen = this.game;
+		if(watcher.seen != null) call(() -> listener.gameChanged(watcher.seen));
+		return true;
+	}
+	
+	/**
+	 * Removes the given listener. The watch ends once it has no listeners left.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void remove(GameListener listener) {
+		for(Watcher watcher: watchers) {
+			if(watcher.listener.equals(listener)) {
+				watchers.remove(watcher);
+				break;
+			}
+		}
+		if(watchers.isEmpty()) cancel();
+	}
+	
+	/**
+	 * Ends this watch for all of its listeners.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void cancel() {
+		if(cancelled) return;
+		cancelled = true;
+		watchers.clear();
+		if(handle != null) handle.cancel();
+		client.unwatch(this);
+	}
+	
+	private CompletableFuture<PollScheduler.Outcome> poll() {
+		return client.getGameAsync(gameID).thenApply(result -> {
+			if(result.status() != APIStatus.ok || result.value() == null) return cancelled ? PollScheduler.Outcome.done : PollScheduler.Outcome.unchanged;
+			return update(result.value());
+		});
+	}
+	
+	/**
+	 * Stores a fetched game and notifies the listeners. Holds the same lock as <code>add</code>, so a listener added meanwhile
+	 * either sees the previous state and is notified of the differences, or sees the new state right away, but never gets the same state twice.
+	 */
+	private synchronized PollScheduler.Outcome update(Game game) {
+		if(cancelled) return PollScheduler.Outcome.done;
+		this.game = game;
+		boolean changed = false;
+		for(Watcher watcher: watchers) {
+			if(notify(watcher, game)) changed = true;
+		}
+		if(!changed) return PollScheduler.Outcome.unchanged;
+		if(game.status() == Game.Status.finished) {
+			cancel();
+			return PollScheduler.Outcome.done;
+		}
+		return PollScheduler.Outcome.changed;
+	}
+	
+	/**
+	 * Calls a listener for all differences between the state of the game it has seen last and the current one and returns whether there were any.
+	 */
+	private static boolean notify(Watcher watcher, Game game) {
+		GameListener listener = watcher.listener;
+		Game previous = watcher.seen;
+		if(previous == game) return false;
+		watcher.seen = game;
+		if(previous == null) {
+			call(() -> listener.gameChanged(game));
+			if(game.status() == Game.Status.finished) call(() -> listener.finished(game));
+			return true;
+		}
+		
+		boolean changed = false;
+		// the fields are read directly, since board() returns a copy
+		Board before = previous.board;
+		Board after = game.board;
+		if(after != null && !after.equals(before)) {
+			changed = true;
+			if(before != null && before.size() == after.size()) {
+				int rowLength = game.width() != null ? 2 * game.width().intValue() - 1 : after.size();
+				for(int word = 0; word<after.words(); word++) {
+					long diff = (before.mask(Game.Field.player0, word) ^ after.mask(Game.Field.player0, word))
+							| (before.mask(Game.Field.player1, word) ^ after.mask(Game.Field.player1, word));
+					while(diff != 0) {
+						int index = (word << 6) + Long.numberOfTrailingZeros(diff);
+						diff &= diff - 1;
+						Game.Field field = after.get(index);
+						if(field == Game.Field.empty) continue;
+						Move move = new Move(index % rowLength + 1, index / rowLength + 1);
+						call(() -> listener.moveMade(game, move, field));
+					}
+				}
+			}
+		}
+		if(game.player0() != null && !game.player0().equals(previous.player0())) {
+			changed = true;
+			call(() -> listener.playerJoined(game, game.player0(), false));
+		}
+		if(game.player1() != null && !game.player1().equals(previous.player1())) {
+			changed = true;
+			call(() -> listener.playerJoined(game, game.player1(), true));
+		}
+		if(game.status() != previous.status()) {
+			changed = true;
+			call(() -> listener.statusChanged(game, previous.status()));
+		}
+		if(!Objects.equals(game.activePlayer(), previous.activePlayer())) changed = true;
+		if(!changed) return false;
+		
+		call(() -> listener.gameChanged(game));
+		if(game.status() == Game.Status.finished) call(() -> listener.finished(game));
+		return true;
+	}
+	
+	/**
+	 * A listener together with the state of the game it has seen last.
+	 */
+	private static class Watcher {
+		final GameListener listener;
+		Game seen;
+		
+		Watcher(GameListener listener) {
+			this.listener = listener;
+		}
+	}
+	
+	/**
+	 * Calls a listener, making sure that a failing listener does not keep the others from being notified.
+	 */
+	private static void call(Runnable call) {
+		try {
+			call.run();
+		} catch(RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+}
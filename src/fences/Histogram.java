@@ -0,0 +1,124 @@
+package fences;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>Histogram</code> counts durations in nanoseconds in logarithmic buckets, similar to an HDR histogram.<br>
+ * Every power of two is split into 16 buckets, so percentiles are accurate to about 6% over the whole range of a long,
+ * while the histogram has a fixed size of a few kilobytes. Recording a value costs a few atomic increments and no allocation,
+ * and any number of threads may record at the same time.
+ * @see fences.Metrics
+ * @author Jakob Danckwerts
+ */
+public class Histogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Creates an empty histogram.
+	 * @author Jakob Danckwerts
+	 */
+	public Histogram() {
+	}
+	
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 * @author Jakob Danckwerts
+	 */
+	public void record(long value) {
+		if(value < 0) value = 0;
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		if(value > max.get()) max.accumulateAndGet(value, Math::max);
+	}
+	
+	/**
+	 * Returns the number of recorded values.
+	 * @author Jakob Danckwerts
+	 */
+	public long count() {
+		return count.sum();
+	}
+	
+	/**
+	 * Returns the largest recorded value, or 0 if none has been recorded.
+	 * @author Jakob Danckwerts
+	 */
+	public long max() {
+		return max.get();
+	}
+	
+	/**
+	 * Returns the mean of the recorded values, or 0 if none has been recorded.
+	 * @author Jakob Danckwerts
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+	
+	/**
+	 * Returns the value that the given percentage of recorded values does not exceed, e.g. <code>percentile(99.9)</code>,
+	 * rounded up to the end of its bucket. Returns 0 if no value has been recorded.
+	 * @author Jakob Danckwerts
+	 */
+	public long percentile(double percent) {
+		if(!(percent >= 0 && percent <= 100)) throw new IllegalArgumentException("percent must be between 0 and 100");
+		long total = 0;
+		for(int i = 0; i<BUCKETS; i++) total += counts.get(i);
+		if(total == 0) return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+		long seen = 0;
+		for(int i = 0; i<BUCKETS; i++) {
+			seen += counts.get(i);
+			if(seen >= rank) return Math.min(highest(i), max());
+		}
+		return max();
+	}
+	
+	/**
+	 * Removes all recorded values. Values recorded at the same time may or may not be kept.
+	 * @author Jakob Danckwerts
+	 */
+	public void reset() {
+		for(int i = 0; i<BUCKETS; i++) counts.set(i, 0);
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+	
+	@Override
+	public String toString() {
+		return "Histogram { count=" + count() + ", p50=" + percentile(50) + ", p99=" + percentile(99) + ", p999=" + percentile(99.9) + ", max=" + max() + " }";
+	}
+	
+	/**
+	 * Values below 16 have a bucket each. Above, the position of the highest bit selects a group of 16 buckets and the next four bits the bucket within it.
+	 */
+	private static int index(long value) {
+		if(value < SUB_COUNT) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+	}
+	
+	/**
+	 * Returns the largest value belonging to the given bucket.
+	 */
+	private static long highest(int index) {
+		if(index < SUB_COUNT) return index;
+		int shift = (index >> SUB_BITS) - 1;
+		long lowest = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
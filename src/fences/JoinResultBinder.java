@@ -0,0 +1,39 @@
+package fences;
+
+/**
+ * A <code>JoinResultBinder</code> creates <code>JoinResult</code> objects from the JSON representation sent by the API.
+ * @author Jakob Danckwerts
+ */
+class JoinResultBinder extends ObjectBinder<JoinResult> {
+	private Long gameID;
+	private Long playerID;
+	private Long role;
+	
+	@Override
+	protected void begin() {
+		gameID = null;
+		playerID = null;
+		role = null;
+	}
+	
+	@Override
+	protected void field(String key, Object value) {
+		switch(key) {
+		case "gameID":
+			gameID = number(value);
+			break;
+		case "playerID":
+			playerID = number(value);
+			break;
+		case "player":
+			role = number(value);
+			break;
+		}
+	}
+	
+	@Override
+	protected JoinResult end() {
+		if(gameID == null || playerID == null || role == null) return null;
+		return new JoinResult(gameID, playerID, role == 1);
+	}
+}
@@ -0,0 +1,223 @@
+package fences;
+
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <code>Metrics</code> measure the requests of one or more <code>Client</code> objects, separately for each API endpoint like <code>/game/get</code>.<br>
+ * For every request the status code, the number of bytes received and two times are recorded: the network time from sending the request
+ * until the last byte of the response has arrived, and the time needed to decode the response afterwards.
+ * Recording only touches a few counters without locks or allocations beyond the request itself, so metrics can stay enabled in production.<br>
+ * The measurements can be read through <code>endpoints()</code>, forwarded as they happen by a <code>MetricsListener</code>
+ * or published as one MXBean per endpoint through JMX.
+ * @see fences.Client.Builder#metrics(Metrics)
+ * @author Jakob Danckwerts
+ */
+public class Metrics {
+	private final ConcurrentHashMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+	private final CopyOnWriteArrayList<MetricsListener> listeners = new CopyOnWriteArrayList<MetricsListener>();
+	private String name;
+	
+	/**
+	 * Creates metrics without any measurements, which are neither published through JMX nor forwarded to listeners yet.
+	 * @author Jakob Danckwerts
+	 */
+	public Metrics() {
+	}
+	
+	/**
+	 * Returns the metrics of all endpoints that have been requested so far, by endpoint.
+	 * @author Jakob Danckwerts
+	 */
+	public Map<String, EndpointMetrics> endpoints() {
+		return Collections.unmodifiableMap(endpoints);
+	}
+	
+	/**
+	 * Returns the metrics of the given endpoint, e.g. <code>/game/get</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public EndpointMetrics endpoint(String endpoint) {
+		EndpointMetrics metrics = endpoints.get(endpoint);
+		if(metrics != null) return metrics;
+		EndpointMetrics created = new EndpointMetrics(endpoint);
+		metrics = endpoints.putIfAbsent(endpoint, created);
+		if(metrics != null) return metrics;
+		register(created);
+		return created;
+	}
+	
+	public void addListener(MetricsListener listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeListener(MetricsListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Removes the measurements of all endpoints.
+	 * @author Jakob Danckwerts
+	 */
+	public void reset() {
+		for(EndpointMetrics metrics: endpoints.values()) metrics.reset();
+	}
+	
+	/**
+	 * Publishes the metrics of every endpoint, including endpoints requested later on, with the platform MBean server.
+	 * The object names are <code>fences:type=Metrics,name=</code><i>name</i><code>,endpoint=</code><i>endpoint</i>.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void registerMBeans(String name) throws JMException {
+		if(this.name != null) unregisterMBeans();
+		this.name = name;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(EndpointMetrics metrics: endpoints.values()) {
+			ObjectName objectName = objectName(name, metrics.endpoint);
+			if(!server.isRegistered(objectName)) server.registerMBean(metrics, objectName);
+		}
+	}
+	
+	/**
+	 * Removes the metrics published by <code>registerMBeans</code> from the platform MBean server.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void unregisterMBeans() throws JMException {
+		if(this.name == null) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(EndpointMetrics metrics: endpoints.values()) {
+			ObjectName objectName = objectName(this.name, metrics.endpoint);
+			if(server.isRegistered(objectName)) server.unregisterMBean(objectName);
+		}
+		this.name = null;
+	}
+	
+	private synchronized void register(EndpointMetrics metrics) {
+		if(name == null) return;
+		try {
+			ObjectName objectName = objectName(name, metrics.endpoint);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(!server.isRegistered(objectName)) server.registerMBean(metrics, objectName);
+		} catch(JMException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private static ObjectName objectName(String name, String endpoint) throws JMException {
+		return new ObjectName("fences:type=Metrics,name=" + ObjectName.quote(name) + ",endpoint=" + ObjectName.quote(endpoint));
+	}
+	
+	/**
+	 * Starts measuring a request to the given API path. The query is not part of the endpoint, which also keeps admin keys out of the metrics.
+	 */
+	Sample sample(String path) {
+		int query = path.indexOf('?');
+		return new Sample(endpoint(query < 0 ? path : path.substring(0, query)));
+	}
+	
+	/**
+	 * The measurement of a single request. <code>start</code> is called right before the request is sent, the body handler is wrapped by <code>measure</code>,
+	 * and either <code>decoded</code> or <code>failed</code> is called at the end.
+	 */
+	final class Sample {
+		private final EndpointMetrics metrics;
+		private long start;
+		private long received;
+		private int statusCode = -1;
+		private long bytes;
+		
+		Sample(EndpointMetrics metrics) {
+			this.metrics = metrics;
+		}
+		
+		void start() {
+			start = System.nanoTime();
+		}
+		
+		<B> BodyHandler<B> measure(BodyHandler<B> handler) {
+			return info -> {
+				statusCode = info.statusCode();
+				return new Counting<B>(handler.apply(info));
+			};
+		}
+		
+		void decoded() {
+			long now = System.nanoTime();
+			if(received == 0) received = now;
+			long network = received - start;
+			long decode = now - received;
+			metrics.record(statusCode, bytes, network, decode);
+			for(MetricsListener listener: listeners) {
+				try {
+					listener.requestCompleted(metrics.endpoint, statusCode, bytes, network, decode);
+				} catch(RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		void failed() {
+			metrics.fail();
+			long network = start == 0 ? 0 : System.nanoTime() - start;
+			for(MetricsListener listener: listeners) {
+				try {
+					listener.requestCompleted(metrics.endpoint, -1, bytes, network, 0);
+				} catch(RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		/**
+		 * Counts the bytes of a body and notes when its last byte has arrived.
+		 */
+		private class Counting<B> implements BodySubscriber<B> {
+			private final BodySubscriber<B> subscriber;
+			
+			Counting(BodySubscriber<B> subscriber) {
+				this.subscriber = subscriber;
+			}
+			
+			@Override
+			public CompletionStage<B> getBody() {
+				return subscriber.getBody();
+			}
+			
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscriber.onSubscribe(subscription);
+			}
+			
+			@Override
+			public void onNext(List<ByteBuffer> buffers) {
+				for(ByteBuffer buffer: buffers) bytes += buffer.remaining();
+				subscriber.onNext(buffers);
+			}
+			
+			@Override
+			public void onError(Throwable throwable) {
+				subscriber.onError(throwable);
+			}
+			
+			@Override
+			public void onComplete() {
+				// noted before handing on, since completing the body may already start decoding it
+				received = System.nanoTime();
+				subscriber.onComplete();
+			}
+		}
+	}
+}
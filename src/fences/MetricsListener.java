@@ -0,0 +1,23 @@
+package fences;
+
+/**
+ * A <code>MetricsListener</code> is notified of every request sent by a <code>Client</code> whose <code>Metrics</code> it has been added to,
+ * e.g. to forward the measurements to a monitoring system.<br>
+ * Listeners are called on the thread that has decoded the response, so they should return quickly.
+ * @see fences.Metrics#addListener(MetricsListener)
+ * @author Jakob Danckwerts
+ */
+@FunctionalInterface
+public interface MetricsListener {
+	
+	/**
+	 * Called once a request has been completed.
+	 * @param endpoint the API path without its query, e.g. <code>/game/get</code>
+	 * @param statusCode the HTTP status code of the response, or -1 if no response has been received
+	 * @param bytes the number of body bytes received
+	 * @param networkNanos the time from sending the request until the last byte of the response has been received
+	 * @param decodeNanos the time needed to decode the response after that
+	 * @author Jakob Danckwerts
+	 */
+	void requestCompleted(String endpoint, int statusCode, long bytes, long networkNanos, long decodeNanos);
+}
@@ -0,0 +1,36 @@
+package fences;
+
+/**
+ * A <code>Move</code> identifies the field a player wants to place its next fence in, using the coordinates of <code>Client.makeTurn</code>.
+ * @see fences.Client#makeTurn(long, long, long, long)
+ * @author Jakob Danckwerts
+ */
+public class Move {
+	protected long x;
+	protected long y;
+	
+	public Move(long x, long y) {
+		this.x = x;
+		this.y = y;
+	}
+	
+	public String toString() {
+		return "Move { x=" + x + ", y=" + y + " }";
+	}
+	
+	/**
+	 * Returns the position inside the row, counting from one at the left side.
+	 * @author Jakob Danckwerts
+	 */
+	public long x() {
+		return x;
+	}
+	
+	/**
+	 * Returns the row, counting from one at the top.
+	 * @author Jakob Danckwerts
+	 */
+	public long y() {
+		return y;
+	}
+}
@@ -0,0 +1,163 @@
+package fences;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+import json.parser.ContentHandler;
+import json.parser.JSONParser;
+import json.parser.JSONParserPool;
+import json.parser.ParseException;
+
+/**
+ * An <code>ObjectBinder</code> creates API objects straight from the events of a streaming <code>JSONParser</code>,
+ * without building an intermediate <code>JSONObject</code> tree.<br>
+ * A binder either binds a single top-level JSON object or, if it was created with a consumer, every object inside a top-level JSON array.
+ * Values nested deeper than the bound objects' own fields are ignored.
+ * @author Jakob Danckwerts
+ */
+abstract class ObjectBinder<T> implements ContentHandler {
+	/**
+	 * Parsers shared by all binders and the <code>Client</code>, so that a response does not have to allocate a new parser and lexer buffer.
+	 */
+	static final JSONParserPool PARSERS = new JSONParserPool(2 * Runtime.getRuntime().availableProcessors());
+	
+	private Consumer<T> consumer;
+	private int level;
+	private int depth;
+	private boolean array;
+	private String key;
+	private T value;
+	
+	/**
+	 * Creates a binder for a single top-level object.
+	 * @author Jakob Danckwerts
+	 */
+	protected ObjectBinder() {
+		this.consumer = null;
+		this.level = 1;
+	}
+	
+	/**
+	 * Creates a binder for the objects inside a top-level array, each of which is handed to the consumer as soon as it has been read completely.
+	 * @author Jakob Danckwerts
+	 */
+	protected ObjectBinder(Consumer<T> consumer) {
+		this.consumer = consumer;
+		this.level = 2;
+	}
+	
+	/**
+	 * Called at the beginning of every bound object, should reset all fields.
+	 * @author Jakob Danckwerts
+	 */
+	protected abstract void begin();
+	
+	/**
+	 * Called for every primitive field of a bound object.
+	 * @author Jakob Danckwerts
+	 */
+	protected abstract void field(String key, Object value);
+	
+	/**
+	 * Called at the end of every bound object. Returns the resulting API object or <code>null</code> if required fields are missing.
+	 * @author Jakob Danckwerts
+	 */
+	protected abstract T end();
+	
+	/**
+	 * Parses the given UTF-8 encoded JSON text and returns the bound object, or <code>null</code> if there is none.
+	 * @author Jakob Danckwerts
+	 */
+	T bind(byte[] b) throws ParseException {
+		JSONParser parser = PARSERS.acquire();
+		try {
+			parser.parse(b, this);
+		} finally {
+			PARSERS.release(parser);
+		}
+		return value;
+	}
+	
+	/**
+	 * Parses the JSON text read from the given reader and returns the bound object, or <code>null</code> if there is none.
+	 * @author Jakob Danckwerts
+	 */
+	T bind(Reader in) throws IOException, ParseException {
+		JSONParser parser = PARSERS.acquire();
+		try {
+			parser.parse(in, this);
+		} finally {
+			PARSERS.release(parser);
+		}
+		return value;
+	}
+	
+	protected static Long number(Object value) {
+		return value instanceof Long ? (Long) value : null;
+	}
+	
+	@Override
+	public void startJSON() {
+		depth = 0;
+		array = false;
+		key = null;
+		value = null;
+	}
+	
+	@Override
+	public void endJSON() throws ParseException {
+		if(level == 2 && !array) throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+	}
+	
+	@Override
+	public boolean startArray() {
+		if(depth == 0) array = true;
+		depth++;
+		return true;
+	}
+	
+	@Override
+	public boolean endArray() {
+		depth--;
+		return true;
+	}
+	
+	@Override
+	public boolean startObject() {
+		depth++;
+		if(depth == level && array == (level == 2)) begin();
+		return true;
+	}
+	
+	@Override
+	public boolean endObject() {
+		if(depth == level && array == (level == 2)) {
+			T result = end();
+			if(result != null) {
+				if(consumer != null) consumer.accept(result);
+				else value = result;
+			}
+		}
+		depth--;
+		return true;
+	}
+	
+	@Override
+	public boolean startObjectEntry(String key) {
+		if(depth == level) this.key = key;
+		return true;
+	}
+	
+	@Override
+	public boolean endObjectEntry() {
+		if(depth == level) this.key = null;
+		return true;
+	}
+	
+	@Override
+	public boolean primitive(Object value) {
+		if(depth == level && key != null) field(key, value);
+		return true;
+	}
+}
@@ -0,0 +1,34 @@
+package fences;
+
+/**
+ * A <code>PlayerBinder</code> creates <code>Player</code> objects from the JSON representation sent by the API.
+ * @author Jakob Danckwerts
+ */
+class PlayerBinder extends ObjectBinder<Player> {
+	private Long playerID;
+	private String name;
+	
+	@Override
+	protected void begin() {
+		playerID = null;
+		name = null;
+	}
+	
+	@Override
+	protected void field(String key, Object value) {
+		switch(key) {
+		case "playerID":
+			playerID = number(value);
+			break;
+		case "name":
+			name = value instanceof String ? (String) value : null;
+			break;
+		}
+	}
+	
+	@Override
+	protected Player end() {
+		if(playerID == null) return null;
+		return new Player(playerID, name);
+	}
+}
@@ -0,0 +1,245 @@
+package fences;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A <code>PollScheduler</code> runs delayed and repeated tasks, above all the polling of games, since the API offers no way to be notified of changes.<br><br>
+ * Timeouts are kept in a hashed timer wheel: a ring of buckets, one per tick, which a single thread advances tick by tick, handing due tasks to an executor.
+ * Scheduling only appends to a lock-free queue and costs the same for thousands of polls as for one, without a sleeping thread per poll.
+ * Tasks run no earlier than their delay and usually within one tick after it.<br>
+ * Repeated polls adapt their interval with a <code>Backoff</code>: they are frequent right after a change and become rarer while nothing happens.
+ * @see fences.Backoff
+ * @author Jakob Danckwerts
+ */
+public class PollScheduler {
+	
+	/**
+	 * The outcome of a single poll. <code>changed</code> resets the interval to its minimum, <code>unchanged</code> lets it grow
+	 * and <code>done</code> ends the polling.
+	 * @author Jakob Danckwerts
+	 */
+	public static enum Outcome {
+		changed, unchanged, done
+	}
+	
+	/**
+	 * A poll which is repeated by a <code>PollScheduler</code>. The next poll is scheduled once the returned future has completed,
+	 * so polls of the same task never overlap. A poll that fails is regarded as <code>unchanged</code>.
+	 * @author Jakob Danckwerts
+	 */
+	@FunctionalInterface
+	public static interface Task {
+		CompletableFuture<Outcome> poll();
+	}
+	
+	/**
+	 * A <code>Handle</code> allows cancelling a scheduled task or a repeated poll.
+	 * @author Jakob Danckwerts
+	 */
+	public static class Handle {
+		private volatile boolean cancelled;
+		
+		Handle() {
+		}
+		
+		/**
+		 * Cancels the task. A task which is already running is not interrupted, but it will not be repeated.
+		 * @author Jakob Danckwerts
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+		
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+	
+	private static class Timeout {
+		final Runnable task;
+		final Handle handle;
+		final long deadline;
+		long rounds;
+		
+		Timeout(Runnable task, Handle handle, long deadline) {
+			this.task = task;
+			this.handle = handle;
+			this.deadline = deadline;
+		}
+	}
+	
+	protected final long tick;
+	protected final int mask;
+	protected final Executor executor;
+	private final ArrayList<ArrayList<Timeout>> wheel;
+	private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<Timeout>();
+	private final long start = System.nanoTime();
+	private Thread worker;
+	private volatile boolean shutdown;
+	
+	/**
+	 * Creates a scheduler with a tick of 10 milliseconds and 512 buckets, which runs its tasks in the common <code>ForkJoinPool</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public PollScheduler() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a scheduler with a tick of 10 milliseconds and 512 buckets, which runs its tasks with the given executor.
+	 * @author Jakob Danckwerts
+	 */
+	public PollScheduler(Executor executor) {
+		this(Duration.ofMillis(10), 512, executor);
+	}
+	
+	/**
+	 * Creates a scheduler with the given tick duration and number of buckets, rounded up to a power of two, which runs its tasks with the given executor.
+	 * Tasks should be short, since the executor's threads are shared by all of them.
+	 * @author Jakob Danckwerts
+	 */
+	public PollScheduler(Duration tick, int buckets, Executor executor) {
+		if(tick.toNanos() < 1_000_000) throw new IllegalArgumentException("tick must be at least one millisecond");
+		if(buckets < 1 || buckets > 1 << 20) throw new IllegalArgumentException("Invalid number of buckets " + buckets);
+		int size = buckets > 1 ? Integer.highestOneBit(buckets - 1) << 1 : 1;
+		this.tick = tick.toNanos();
+		this.mask = size - 1;
+		this.executor = executor;
+		this.wheel = new ArrayList<ArrayList<Timeout>>(size);
+		for(int i = 0; i<size; i++) wheel.add(new ArrayList<Timeout>());
+	}
+	
+	/**
+	 * Runs the given task once after the given delay.
+	 * @author Jakob Danckwerts
+	 */
+	public Handle schedule(Runnable task, long delay, TimeUnit unit) {
+		Handle handle = new Handle();
+		schedule(task, handle, unit.toNanos(delay));
+		return handle;
+	}
+	
+	/**
+	 * Polls the given task right away and then repeatedly, with intervals following the given backoff,
+	 * until a poll returns <code>done</code> or the returned handle is cancelled.
+	 * @author Jakob Danckwerts
+	 */
+	public Handle poll(Task task, Backoff backoff) {
+		Handle handle = new Handle();
+		Poller poller = new Poller(task, backoff, handle);
+		try {
+			executor.execute(poller);
+		} catch(RejectedExecutionException e) {
+			handle.cancel();
+		}
+		return handle;
+	}
+	
+	/**
+	 * Stops the scheduler's thread. Pending tasks are dropped, tasks scheduled afterwards never run.
+	 * @author Jakob Danckwerts
+	 */
+	public void shutdown() {
+		shutdown = true;
+		synchronized(this) {
+			if(worker != null) LockSupport.unpark(worker);
+		}
+	}
+	
+	private void schedule(Runnable task, Handle handle, long delay) {
+		if(shutdown) {
+			handle.cancel();
+			return;
+		}
+		pending.add(new Timeout(task, handle, System.nanoTime() + Math.max(0, delay)));
+		synchronized(this) {
+			if(worker == null) {
+				worker = new Thread(this::run, "PollScheduler");
+				worker.setDaemon(true);
+				worker.start();
+			}
+		}
+	}
+	
+	private void run() {
+		long current = 1;
+		while(!shutdown) {
+			long wait;
+			while((wait = start + current * tick - System.nanoTime()) > 0 && !shutdown) LockSupport.parkNanos(this, wait);
+			if(shutdown) break;
+			
+			// move new timeouts into their buckets
+			Timeout timeout;
+			while((timeout = pending.poll()) != null) {
+				if(timeout.handle.isCancelled()) continue;
+				long due = Math.max(current, (timeout.deadline - start + tick - 1) / tick);
+				timeout.rounds = (due - current) / wheel.size();
+				wheel.get((int) (due & mask)).add(timeout);
+			}
+			
+			ArrayList<Timeout> bucket = wheel.get((int) (current & mask));
+			for(int i = bucket.size() - 1; i>=0; i--) {
+				timeout = bucket.get(i);
+				if(!timeout.handle.isCancelled() && timeout.rounds > 0) {
+					timeout.rounds--;
+					continue;
+				}
+				// swap-remove, the order within a bucket does not matter
+				bucket.set(i, bucket.get(bucket.size() - 1));
+				bucket.remove(bucket.size() - 1);
+				if(timeout.handle.isCancelled()) continue;
+				try {
+					executor.execute(timeout.task);
+				} catch(RejectedExecutionException e) {
+					timeout.handle.cancel();
+				}
+			}
+			current++;
+		}
+	}
+	
+	/**
+	 * Repeats a task, scheduling each poll after the previous one has completed.
+	 */
+	private class Poller implements Runnable {
+		private final Task task;
+		private final Backoff backoff;
+		private final Handle handle;
+		private long interval;
+		
+		Poller(Task task, Backoff backoff, Handle handle) {
+			this.task = task;
+			this.backoff = backoff;
+			this.handle = handle;
+			this.interval = backoff.initial();
+		}
+		
+		@Override
+		public void run() {
+			if(handle.isCancelled()) return;
+			CompletableFuture<Outcome> poll;
+			try {
+				poll = task.poll();
+			} catch(RuntimeException e) {
+				poll = CompletableFuture.completedFuture(Outcome.unchanged);
+			}
+			poll.whenComplete((outcome, e) -> {
+				if(handle.isCancelled()) return;
+				if(outcome == Outcome.done) {
+					handle.cancel();
+					return;
+				}
+				interval = outcome == Outcome.changed ? backoff.initial() : backoff.next(interval);
+				schedule(this, handle, backoff.jitter(interval));
+			});
+		}
+	}
+}
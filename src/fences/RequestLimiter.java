@@ -0,0 +1,157 @@
+package fences;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A <code>RequestLimiter</code> caps the number of requests a <code>Client</code> has in flight at the same time.
+ * Blocking callers wait for a free permit, asynchronous callers receive a future that completes once a permit is available.
+ * @author Jakob Danckwerts
+ */
+class RequestLimiter {
+	private int available;
+	private ArrayDeque<CompletableFuture<Void>> waiting;
+	
+	RequestLimiter(int permits) {
+		if(permits < 1) throw new IllegalArgumentException("permits must be positive");
+		this.available = permits;
+		this.waiting = new ArrayDeque<>();
+	}
+	
+	/**
+	 * Returns a future that completes as soon as a permit has been granted to the caller.
+	 * @author Jakob Danckwerts
+	 */
+	synchronized CompletableFuture<Void> acquire() {
+		if(available > 0) {
+			available--;
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<Void> permit = new CompletableFuture<>();
+		waiting.add(permit);
+		return permit;
+	}
+	
+	/**
+	 * Blocks until a permit has been granted to the caller.
+	 * @author Jakob Danckwerts
+	 */
+	void acquireBlocking() throws InterruptedException {
+		CompletableFuture<Void> permit = acquire();
+		try {
+			permit.get();
+		} catch(InterruptedException e) {
+			// the permit might have been granted in the meantime, hand it on in that case
+			if(!permit.cancel(false)) release();
+			throw e;
+		} catch(ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Returns a permit, handing it to the longest waiting caller if there is one.
+	 * @author Jakob Danckwerts
+	 */
+	void release() {
+		while(true) {
+			CompletableFuture<Void> next;
+			synchronized(this) {
+				next = waiting.poll();
+				if(next == null) {
+					available++;
+					return;
+				}
+			}
+			if(next.complete(null)) return;
+		}
+	}
+	
+	/**
+	 * Returns a handle for a permit that has just been granted, which returns it at most once.
+	 * @author Jakob Danckwerts
+	 */
+	Permit permit() {
+		return new Permit();
+	}
+	
+	/**
+	 * A granted permit. A request keeps its permit until the body of its response has been received completely,
+	 * has failed or has been abandoned, not only until the headers have arrived, so that bodies read as a stream still count as in flight.
+	 * @author Jakob Danckwerts
+	 */
+	class Permit {
+		private final AtomicBoolean released = new AtomicBoolean();
+		
+		/**
+		 * Returns the permit unless it has already been returned.
+		 * @author Jakob Danckwerts
+		 */
+		void release() {
+			if(released.compareAndSet(false, true)) RequestLimiter.this.release();
+		}
+		
+		/**
+		 * Wraps a body handler so that the permit is returned once the body has been completed, has failed or its subscription has been cancelled,
+		 * e.g. by closing the <code>InputStream</code> of a streamed body.
+		 * @author Jakob Danckwerts
+		 */
+		<B> BodyHandler<B> holding(BodyHandler<B> handler) {
+			return info -> new Holding<B>(handler.apply(info));
+		}
+		
+		private class Holding<B> implements BodySubscriber<B> {
+			private final BodySubscriber<B> subscriber;
+			
+			Holding(BodySubscriber<B> subscriber) {
+				this.subscriber = subscriber;
+			}
+			
+			@Override
+			public CompletionStage<B> getBody() {
+				return subscriber.getBody();
+			}
+			
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscriber.onSubscribe(new Flow.Subscription() {
+					@Override
+					public void request(long n) {
+						subscription.request(n);
+					}
+					
+					@Override
+					public void cancel() {
+						release();
+						subscription.cancel();
+					}
+				});
+			}
+			
+			@Override
+			public void onNext(List<ByteBuffer> item) {
+				subscriber.onNext(item);
+			}
+			
+			@Override
+			public void onError(Throwable throwable) {
+				release();
+				subscriber.onError(throwable);
+			}
+			
+			@Override
+			public void onComplete() {
+				release();
+				subscriber.onComplete();
+			}
+		}
+	}
+}
@@ -8,6 +8,7 @@ package fences;
 public class Result <E> {
 	private APIStatus status;
 	private E value;
+	private Throwable cause;
 	
 	public Result(APIStatus status, E value) {
 		this.status = status;
@@ -29,6 +30,25 @@ public class Result <E> {
 		this.value = null;
 	}
 	
+	/**
+	 * Creates a result with the same status, value and cause as the given one.
+	 * @author Jakob Danckwerts
+	 */
+	protected Result(Result<E> result) {
+		this.status = result.status;
+		this.value = result.value;
+		this.cause = result.cause;
+	}
+	
+	/**
+	 * Creates the result of a request that could not be completed because of the given exception.
+	 */
+	static <E> Result<E> failed(Throwable cause) {
+		Result<E> result = new Result<E>(APIStatus.error);
+		result.cause = cause;
+		return result;
+	}
+	
 	@Override
 	public String toString() {
 		return "Result { status=" + (this.status == null ? "?" : this.status.name()) + ", " + this.value + " }";
@@ -50,4 +70,13 @@ public class Result <E> {
 	public E value() {
 		return value;
 	}
+	
+	/**
+	 * Returns the exception that kept the request from being completed, e.g. because the server could not be reached,
+	 * or <code>null</code> if a response has been received.
+	 * @author Jakob Danckwerts
+	 */
+	public Throwable cause() {
+		return cause;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package fences;
+
+/**
+ * A <code>ServerInfo</code> describes a Fences API server found in the network: its address, its port and the API version it runs.
+ * @see fences.ServerScanner
+ * @author Jakob Danckwerts
+ */
+public class ServerInfo {
+	protected String address;
+	protected String port;
+	protected Version version;
+	
+	public ServerInfo(String address, String port, Version version) {
+		this.address = address;
+		this.port = port;
+		this.version = version;
+	}
+	
+	public String toString() {
+		return "ServerInfo { address=" + address + ", port=" + port + ", version=" + version + " }";
+	}
+	
+	/**
+	 * Returns the IP address of the server, which can be passed to the <code>Client</code> constructor.
+	 * @author Jakob Danckwerts
+	 */
+	public String address() {
+		return address;
+	}
+	
+	public String port() {
+		return port;
+	}
+	
+	public Version version() {
+		return version;
+	}
+}
@@ -0,0 +1,315 @@
+package fences;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A <code>ServerRegistry</code> remembers the servers found by a <code>ServerScanner</code> in a small file, so that they are known right away the next time the program starts.<br>
+ * Lookups are answered from memory without waiting for the network. Meanwhile the known servers are asked for their version again in the background,
+ * and servers that have not answered for longer than a grace period are forgotten, so a server that is briefly unreachable or restarting is kept.
+ * Only if no server is known for a port, a lookup scans the local networks and waits for the result.<br>
+ * The file holds one server per line, given by its address, port, version and the time it has last answered,
+ * and is replaced as a whole whenever the known servers change.
+ * All methods are thread-safe.
+ * @see fences.ServerScanner
+ * @see fences.Client#searchServer(String, boolean)
+ * @author Jakob Danckwerts
+ */
+public class ServerRegistry {
+	protected final Path file;
+	protected final ServerScanner scanner;
+	private volatile List<ServerInfo> servers;
+	private final ConcurrentHashMap<String, Long> lastSeen = new ConcurrentHashMap<String, Long>();
+	private final Set<String> missed = ConcurrentHashMap.newKeySet();
+	private volatile Duration gracePeriod = Duration.ofDays(1);
+	private final AtomicReference<CompletableFuture<List<ServerInfo>>> refreshing = new AtomicReference<CompletableFuture<List<ServerInfo>>>();
+	private PollScheduler scheduler;
+	private PollScheduler.Handle handle;
+	
+	/**
+	 * Creates a registry which keeps its servers in the default file and searches with a default <code>ServerScanner</code>.
+	 * @see fences.ServerRegistry#defaultFile()
+	 * @author Jakob Danckwerts
+	 */
+	public ServerRegistry() {
+		this(defaultFile(), new ServerScanner());
+	}
+	
+	/**
+	 * Creates a registry which keeps its servers in the given file and searches with the given scanner.
+	 * The servers already stored in the file are read right away. A missing or unreadable file leaves the registry empty.
+	 * @author Jakob Danckwerts
+	 */
+	public ServerRegistry(Path file, ServerScanner scanner) {
+		this.file = file;
+		this.scanner = scanner;
+		this.servers = sorted(load(file, lastSeen));
+	}
+	
+	/**
+	 * Returns the default file, <code>.fences/servers</code> in the user's home directory.
+	 * @author Jakob Danckwerts
+	 */
+	public static Path defaultFile() {
+		return Paths.get(System.getProperty("user.home"), ".fences", "servers");
+	}
+	
+	/**
+	 * Sets how long a server may fail to answer before it is forgotten, one day by default.
+	 * A server is only forgotten by a revalidation, so it is kept at least until the first revalidation after the grace period.
+	 * @author Jakob Danckwerts
+	 */
+	public void gracePeriod(Duration gracePeriod) {
+		this.gracePeriod = gracePeriod;
+	}
+	
+	/**
+	 * Returns all known servers, the one with the latest version first.
+	 * @author Jakob Danckwerts
+	 */
+	public List<ServerInfo> servers() {
+		return servers;
+	}
+	
+	/**
+	 * Returns the known server with the latest version listening on the given port, or <code>null</code> if none is known. Never accesses the network.<br>
+	 * Servers that have answered the latest revalidation are preferred over servers that are only kept because of their grace period.
+	 * @author Jakob Danckwerts
+	 */
+	public ServerInfo get(String port) {
+		ServerInfo missing = null;
+		for(ServerInfo server: servers) {
+			if(!server.port().equals(port)) continue;
+			if(!missed.contains(key(server))) return server;
+			if(missing == null) missing = server;
+		}
+		return missing;
+	}
+	
+	/**
+	 * Returns the address of a server listening on the given port, just like <code>Client.searchServer</code>, or <code>null</code> if none is found.<br>
+	 * If a server is known, its address is returned right away and the known servers are revalidated in the background.
+	 * Otherwise the local networks are scanned, with <code>hurry</code> having the same meaning as for <code>Client.searchServer</code>,
+	 * and the servers found are remembered.
+	 * @author Jakob Danckwerts
+	 */
+	public String lookup(String port, boolean hurry) throws IOException, InterruptedException {
+		ServerInfo server = get(port);
+		if(server != null) {
+			refreshAsync();
+			return server.address();
+		}
+		List<ServerInfo> found;
+		try {
+			found = scanner.scanAsync(ServerScanner.localRanges(), port, hurry).get();
+		} catch(ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		add(found);
+		return found.isEmpty() ? null : found.get(0).address();
+	}
+	
+	/**
+	 * Remembers the given servers, replacing the version of servers that are already known.
+	 * @author Jakob Danckwerts
+	 */
+	public void add(Collection<ServerInfo> found) {
+		if(found.isEmpty()) return;
+		long now = System.currentTimeMillis();
+		for(ServerInfo server: found) {
+			lastSeen.put(key(server), now);
+			missed.remove(key(server));
+		}
+		update(true, current -> {
+			LinkedHashMap<String, ServerInfo> merged = byKey(current);
+			for(ServerInfo server: found) merged.put(key(server), server);
+			return merged.values();
+		});
+	}
+	
+	/**
+	 * Asks all known servers for their version again, forgetting the ones that have not answered for longer than the grace period. The returned future completes with the servers that are still known.<br>
+	 * If a revalidation is already running, its future is returned instead of starting another one.
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<List<ServerInfo>> refreshAsync() {
+		CompletableFuture<List<ServerInfo>> future = new CompletableFuture<List<ServerInfo>>();
+		if(!refreshing.compareAndSet(null, future)) {
+			CompletableFuture<List<ServerInfo>> running = refreshing.get();
+			if(running != null) return running;
+			return refreshAsync();
+		}
+		
+		List<ServerInfo> known = servers;
+		ArrayList<CompletableFuture<ServerInfo>> probes = new ArrayList<CompletableFuture<ServerInfo>>(known.size());
+		for(ServerInfo server: known) probes.add(scanner.probeAsync(server.address(), server.port()));
+		CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+			long now = System.currentTimeMillis();
+			LinkedHashMap<String, ServerInfo> answered = new LinkedHashMap<String, ServerInfo>();
+			for(CompletableFuture<ServerInfo> probe: probes) {
+				ServerInfo server = probe.join();
+				if(server != null) {
+					answered.put(key(server), server);
+					lastSeen.put(key(server), now);
+				}
+			}
+			for(ServerInfo server: known) {
+				if(answered.containsKey(key(server))) missed.remove(key(server));
+				else missed.add(key(server));
+			}
+			long forgetBefore = now - gracePeriod.toMillis();
+			List<ServerInfo> result = update(!answered.isEmpty(), current -> {
+				// servers that did not answer are kept until their grace period is over, servers added while the probes were running have not been probed
+				LinkedHashMap<String, ServerInfo> merged = new LinkedHashMap<String, ServerInfo>(answered);
+				for(ServerInfo server: current) {
+					if(lastSeen.getOrDefault(key(server), now) >= forgetBefore) merged.putIfAbsent(key(server), server);
+				}
+				return merged.values();
+			});
+			refreshing.set(null);
+			future.complete(result);
+		});
+		return future;
+	}
+	
+	/**
+	 * Revalidates the known servers right away and then repeatedly with the given interval, until <code>shutdown</code> is called.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void refreshEvery(Duration interval) {
+		if(handle != null) handle.cancel();
+		if(scheduler == null) scheduler = new PollScheduler();
+		handle = scheduler.poll(() -> refreshAsync().thenApply(servers -> PollScheduler.Outcome.unchanged), Backoff.fixed(interval));
+	}
+	
+	/**
+	 * Stops revalidating the known servers in the background.
+	 * @author Jakob Danckwerts
+	 */
+	public synchronized void shutdown() {
+		if(handle != null) handle.cancel();
+		if(scheduler != null) scheduler.shutdown();
+		handle = null;
+		scheduler = null;
+	}
+	
+	/**
+	 * Replaces the known servers by the result of the given function and stores them if they have changed,
+	 * or regardless if <code>seen</code> is <code>true</code> because the times the servers have last answered have changed.
+	 */
+	private synchronized List<ServerInfo> update(boolean seen, Function<List<ServerInfo>, Collection<ServerInfo>> function) {
+		List<ServerInfo> previous = servers;
+		List<ServerInfo> next = sorted(function.apply(previous));
+		if(sameServers(previous, next)) {
+			if(seen) save(previous);
+			return previous;
+		}
+		LinkedHashMap<String, ServerInfo> kept = byKey(next);
+		for(ServerInfo server: previous) {
+			if(kept.containsKey(key(server))) continue;
+			lastSeen.remove(key(server));
+			missed.remove(key(server));
+		}
+		servers = next;
+		save(next);
+		return next;
+	}
+	
+	private void save(List<ServerInfo> servers) {
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			if(directory != null) Files.createDirectories(directory);
+			Path temp = Files.createTempFile(directory, "servers", ".tmp");
+			try(BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				long now = System.currentTimeMillis();
+				for(ServerInfo server: servers) {
+					writer.write(server.address() + " " + server.port() + " " + server.version() + " " + lastSeen.getOrDefault(key(server), now));
+					writer.newLine();
+				}
+			}
+			// readers in other processes see either the old or the new file, never a partly written one
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch(IOException e) {
+			// the file is only a cache, the servers are searched again if it cannot be written
+		}
+	}
+	
+	/**
+	 * Reads the servers stored in the given file and the times they have last answered. Lines written before that time was stored count as seen right now.
+	 */
+	private static List<ServerInfo> load(Path file, Map<String, Long> lastSeen) {
+		ArrayList<ServerInfo> servers = new ArrayList<ServerInfo>();
+		if(!Files.isRegularFile(file)) return servers;
+		try {
+			long now = System.currentTimeMillis();
+			for(String line: Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				String[] parts = line.trim().split("\\s+");
+				if(parts.length != 3 && parts.length != 4) continue;
+				Version version = Version.parse(parts[2]);
+				if(version == null) continue;
+				ServerInfo server = new ServerInfo(parts[0], parts[1], version);
+				servers.add(server);
+				long seen = now;
+				if(parts.length == 4) {
+					try {
+						seen = Long.parseLong(parts[3]);
+					} catch(NumberFormatException e) {
+						// a broken time counts as seen right now
+					}
+				}
+				lastSeen.put(key(server), seen);
+			}
+		} catch(IOException e) {
+			// an unreadable file is treated like a missing one
+		}
+		return servers;
+	}
+	
+	private static List<ServerInfo> sorted(Collection<ServerInfo> servers) {
+		ArrayList<ServerInfo> list = new ArrayList<ServerInfo>(byKey(servers).values());
+		list.sort(Comparator.comparing(ServerInfo::version).reversed());
+		return Collections.unmodifiableList(list);
+	}
+	
+	private static boolean sameServers(List<ServerInfo> a, List<ServerInfo> b) {
+		if(a.size() != b.size()) return false;
+		for(int i = 0; i<a.size(); i++) {
+			if(!key(a.get(i)).equals(key(b.get(i))) || !a.get(i).version().equals(b.get(i).version())) return false;
+		}
+		return true;
+	}
+	
+	private static LinkedHashMap<String, ServerInfo> byKey(Collection<ServerInfo> servers) {
+		LinkedHashMap<String, ServerInfo> map = new LinkedHashMap<String, ServerInfo>();
+		for(ServerInfo server: servers) map.put(key(server), server);
+		return map;
+	}
+	
+	private static String key(ServerInfo server) {
+		return server.address() + ":" + server.port();
+	}
+}
@@ -0,0 +1,296 @@
+package fences;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <code>ServerScanner</code> searches IPv4 address ranges for Fences API servers by asking every address for <code>/fences-server-search</code>,
+ * which a server answers with its version.<br>
+ * All probes are sent asynchronously by one shared <code>HttpClient</code>, at most a fixed number at the same time, and each probe is given up after a short timeout,
+ * since a device that is not running a server either refuses the connection right away or does not answer at all.
+ * With the defaults a /24 network is scanned in a single round of probes, which takes no longer than the timeout.<br>
+ * Ranges are given in CIDR notation, e.g. <code>192.168.0.0/24</code>. A single address is treated as a range of one.
+ * @see fences.Client#searchServer(String, boolean)
+ * @author Jakob Danckwerts
+ */
+public class ServerScanner {
+	protected final HttpClient client;
+	protected final Duration timeout;
+	protected final int maxConcurrent;
+	
+	/**
+	 * Creates a scanner which waits half a second for each address and probes up to 256 addresses at the same time.
+	 * @author Jakob Danckwerts
+	 */
+	public ServerScanner() {
+		this(Duration.ofMillis(500), 256);
+	}
+	
+	/**
+	 * Creates a scanner which waits for each address for the given time and probes up to <code>maxConcurrent</code> addresses at the same time.
+	 * @author Jakob Danckwerts
+	 */
+	public ServerScanner(Duration timeout, int maxConcurrent) {
+		if(timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("timeout must be positive");
+		if(maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be positive");
+		this.timeout = timeout;
+		this.maxConcurrent = maxConcurrent;
+		// a probe is a single small request, so the upgrade to HTTP/2 would only cost time
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.followRedirects(Redirect.NEVER)
+				.connectTimeout(timeout)
+				.build();
+	}
+	
+	/**
+	 * Returns the IPv4 networks this machine is connected to, in CIDR notation.<br>
+	 * Networks larger than a /24 are narrowed down to the /24 containing the machine's own address, so that a scan stays quick.
+	 * Loopback and inactive interfaces are skipped.
+	 * @author Jakob Danckwerts
+	 */
+	public static List<String> localRanges() throws SocketException {
+		LinkedHashSet<String> ranges = new LinkedHashSet<String>();
+		Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+		while(interfaces != null && interfaces.hasMoreElements()) {
+			NetworkInterface networkInterface = interfaces.nextElement();
+			if(!networkInterface.isUp() || networkInterface.isLoopback()) continue;
+			for(InterfaceAddress address: networkInterface.getInterfaceAddresses()) {
+				if(!(address.getAddress() instanceof Inet4Address)) continue;
+				int prefix = Math.max(24, Math.min(32, (int) address.getNetworkPrefixLength()));
+				int network = toInt(address.getAddress()) & mask(prefix);
+				ranges.add(toString(network) + "/" + prefix);
+			}
+		}
+		return new ArrayList<String>(ranges);
+	}
+	
+	/**
+	 * Returns all host addresses of the given range. The network and broadcast addresses are left out of ranges which have them, i.e. up to /30.<br>
+	 * Ranges larger than a /16 are rejected, since scanning them would take far too long.
+	 * @author Jakob Danckwerts
+	 */
+	public static List<String> addresses(String cidr) {
+		int slash = cidr.indexOf('/');
+		int prefix;
+		int address;
+		try {
+			prefix = slash < 0 ? 32 : Integer.parseInt(cidr.substring(slash + 1).trim());
+			address = toInt(InetAddress.getByName(slash < 0 ? cidr.trim() : cidr.substring(0, slash).trim()));
+		} catch(NumberFormatException | UnknownHostException | ClassCastException e) {
+			throw new IllegalArgumentException("Invalid range " + cidr);
+		}
+		if(prefix < 16 || prefix > 32) throw new IllegalArgumentException("Invalid prefix length in " + cidr + ", must be between 16 and 32");
+		
+		int first = address & mask(prefix);
+		int count = 1 << (32 - prefix);
+		ArrayList<String> addresses = new ArrayList<String>(count);
+		for(int i = prefix <= 30 ? 1 : 0; i<(prefix <= 30 ? count - 1 : count); i++) {
+			addresses.add(toString(first + i));
+		}
+		return addresses;
+	}
+	
+	/**
+	 * Asks the given address whether it runs a server. The returned future completes with the server or with <code>null</code> if there is none.
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<ServerInfo> probeAsync(String address, String port) {
+		CompletableFuture<HttpResponse<String>> response = send(address, port);
+		if(response == null) return CompletableFuture.completedFuture(null);
+		return answer(response, address, port);
+	}
+	
+	/**
+	 * Sends the probe request, returning <code>null</code> if the address or port is invalid.
+	 * The returned future is the one of the <code>HttpClient</code>, so cancelling it aborts the request.
+	 */
+	private CompletableFuture<HttpResponse<String>> send(String address, String port) {
+		HttpRequest request;
+		try {
+			request = HttpRequest.newBuilder()
+					.uri(URI.create("http://" + address + ":" + port + "/fences-server-search"))
+					.timeout(timeout)
+					.build();
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+		return client.sendAsync(request, BodyHandlers.ofString());
+	}
+	
+	private static CompletableFuture<ServerInfo> answer(CompletableFuture<HttpResponse<String>> response, String address, String port) {
+		return response
+				.thenApply(r -> {
+					if(r.statusCode() != 200) return null;
+					Version version = Version.parse(r.body().trim());
+					return version == null ? null : new ServerInfo(address, port, version);
+				})
+				.exceptionally(e -> null);
+	}
+	
+	/**
+	 * Scans the given range and returns all servers found, the one with the latest version first.
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<List<ServerInfo>> scanAsync(String cidr, String port) {
+		return scanAsync(Collections.singletonList(cidr), port, false);
+	}
+	
+	/**
+	 * Scans the given ranges and returns all servers found, the one with the latest version first.
+	 * If <code>hurry</code> is <code>true</code>, the scan ends as soon as the first server has answered and only this server is returned.
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<List<ServerInfo>> scanAsync(Collection<String> ranges, String port, boolean hurry) {
+		LinkedHashSet<String> addresses = new LinkedHashSet<String>();
+		for(String cidr: ranges) addresses.addAll(addresses(cidr));
+		
+		CompletableFuture<List<ServerInfo>> result = new CompletableFuture<List<ServerInfo>>();
+		if(addresses.isEmpty()) {
+			result.complete(new ArrayList<ServerInfo>());
+			return result;
+		}
+		Scan scan = new Scan(result, addresses, port, hurry);
+		// once the result is known, e.g. because the caller has cancelled it, the probes still in flight are aborted
+		result.whenComplete((servers, e) -> scan.abort());
+		int lanes = Math.min(maxConcurrent, addresses.size());
+		for(int i = 0; i<lanes; i++) scan.next();
+		return result;
+	}
+	
+	/**
+	 * A running scan. Up to <code>maxConcurrent</code> lanes each probe one address at a time and take the next address from the queue once their probe has completed.
+	 */
+	private class Scan {
+		private final CompletableFuture<List<ServerInfo>> result;
+		private final ConcurrentLinkedQueue<String> pending;
+		private final ConcurrentLinkedQueue<ServerInfo> found = new ConcurrentLinkedQueue<ServerInfo>();
+		private final Set<CompletableFuture<HttpResponse<String>>> probing = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger remaining;
+		private final String port;
+		private final boolean hurry;
+		
+		Scan(CompletableFuture<List<ServerInfo>> result, Collection<String> addresses, String port, boolean hurry) {
+			this.result = result;
+			this.pending = new ConcurrentLinkedQueue<String>(addresses);
+			this.remaining = new AtomicInteger(addresses.size());
+			this.port = port;
+			this.hurry = hurry;
+		}
+		
+		/**
+		 * Probes the next address of the queue. Probes that complete right away, like the ones of invalid addresses or refused connections,
+		 * are handled in a loop rather than by calling <code>next</code> again, so that a large range cannot grow the stack.
+		 */
+		void next() {
+			while(!result.isDone()) {
+				String address = pending.poll();
+				if(address == null) return;
+				CompletableFuture<HttpResponse<String>> response = send(address, port);
+				if(response == null) {
+					completed(null);
+					continue;
+				}
+				probing.add(response);
+				if(result.isDone()) response.cancel(true);
+				// whoever gets here second goes on with the next address: this loop if the probe has already completed, otherwise the completion
+				AtomicBoolean first = new AtomicBoolean(true);
+				answer(response, address, port).whenComplete((server, e) -> {
+					probing.remove(response);
+					completed(server);
+					if(!first.compareAndSet(true, false)) next();
+				});
+				if(first.compareAndSet(true, false)) return;
+			}
+		}
+		
+		void abort() {
+			pending.clear();
+			for(CompletableFuture<HttpResponse<String>> response: probing) response.cancel(true);
+		}
+		
+		private void completed(ServerInfo server) {
+			if(server != null) {
+				found.add(server);
+				if(hurry) result.complete(new ArrayList<ServerInfo>(Collections.singletonList(server)));
+			}
+			if(remaining.decrementAndGet() == 0) {
+				ArrayList<ServerInfo> servers = new ArrayList<ServerInfo>(found);
+				servers.sort(Comparator.comparing(ServerInfo::version).reversed());
+				result.complete(servers);
+			}
+		}
+	}
+	
+	/**
+	 * Scans the networks this machine is connected to and returns the server with the latest version, or the first server to answer if <code>hurry</code> is <code>true</code>.
+	 * The returned future completes with <code>null</code> if no server is found.
+	 * @see fences.ServerScanner#localRanges()
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<ServerInfo> findAsync(String port, boolean hurry) throws SocketException {
+		return findAsync(localRanges(), port, hurry);
+	}
+	
+	/**
+	 * Scans the given ranges and returns the server with the latest version, or the first server to answer if <code>hurry</code> is <code>true</code>.
+	 * The returned future completes with <code>null</code> if no server is found.
+	 * @author Jakob Danckwerts
+	 */
+	public CompletableFuture<ServerInfo> findAsync(Collection<String> ranges, String port, boolean hurry) {
+		return scanAsync(ranges, port, hurry).thenApply(servers -> servers.isEmpty() ? null : servers.get(0));
+	}
+	
+	/**
+	 * Scans the given ranges and returns the server with the latest version, or the first server to answer if <code>hurry</code> is <code>true</code>.
+	 * Returns <code>null</code> if no server is found.
+	 * @see fences.ServerScanner#findAsync(Collection, String, boolean)
+	 * @author Jakob Danckwerts
+	 */
+	public ServerInfo find(Collection<String> ranges, String port, boolean hurry) throws IOException, InterruptedException {
+		try {
+			return findAsync(ranges, port, hurry).get();
+		} catch(ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	private static int toInt(InetAddress address) {
+		byte[] bytes = ((Inet4Address) address).getAddress();
+		return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+	}
+	
+	private static int mask(int prefix) {
+		return prefix == 0 ? 0 : -1 << (32 - prefix);
+	}
+	
+	private static String toString(int address) {
+		return (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+	}
+}
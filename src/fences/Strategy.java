@@ -0,0 +1,18 @@
+package fences;
+
+/**
+ * A <code>Strategy</code> decides which turn a bot makes. It is called by a <code>BotRunner</code> whenever it is the bot's turn.
+ * @see fences.BotRunner
+ * @author Jakob Danckwerts
+ */
+@FunctionalInterface
+public interface Strategy {
+	
+	/**
+	 * Chooses the next move in the given game, which has just been fetched from the server.
+	 * <code>role</code> is <code>true</code> if the bot is player 1, <code>false</code> if it is player 0.<br>
+	 * A strategy may be called for several games at the same time and must therefore be thread-safe.
+	 * @author Jakob Danckwerts
+	 */
+	Move move(Game game, boolean role);
+}
@@ -0,0 +1,34 @@
+package fences;
+
+/**
+ * A <code>TurnResultBinder</code> creates <code>TurnResult</code> objects from the JSON representation sent by the API.
+ * @author Jakob Danckwerts
+ */
+class TurnResultBinder extends ObjectBinder<TurnResult> {
+	private Long gameID;
+	private Boolean winner;
+	
+	@Override
+	protected void begin() {
+		gameID = null;
+		winner = null;
+	}
+	
+	@Override
+	protected void field(String key, Object value) {
+		switch(key) {
+		case "gameID":
+			gameID = number(value);
+			break;
+		case "winner":
+			winner = value instanceof Boolean ? (Boolean) value : null;
+			break;
+		}
+	}
+	
+	@Override
+	protected TurnResult end() {
+		if(gameID == null) return null;
+		return new TurnResult(gameID, winner);
+	}
+}
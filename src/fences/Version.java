@@ -21,6 +21,16 @@ public class Version implements Comparable<Version> {
 		this.fix = fix;
 	}
 
+	/**
+	 * Parses a version in the form sent by the API, e.g. <code>v1.2.3</code>. Returns <code>null</code> if the text is not a version.
+	 * @author Jakob Danckwerts
+	 */
+	public static Version parse(String text) {
+		if(text == null || !text.matches("v[0-9]{1,9}\\.[0-9]{1,9}\\.[0-9]{1,9}")) return null;
+		String[] numbers = text.substring(1).split("\\.");
+		return new Version(Integer.parseInt(numbers[0]), Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]));
+	}
+	
 	public int getMajor() {
 		return major;
 	}
@@ -44,6 +54,19 @@ public class Version implements Comparable<Version> {
 		return 0;
 	}
 	
+	@Override
+	public boolean equals(Object o) {
+		if(this == o) return true;
+		if(!(o instanceof Version)) return false;
+		Version v = (Version) o;
+		return major == v.major && minor == v.minor && fix == v.fix;
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * (31 * major + minor) + fix;
+	}
+	
 	@Override
 	public String toString() {
 		return "v" + major + "." + minor + "." + fix;
@@ -0,0 +1,349 @@
+package fences.engine;
+
+import fences.Game;
+
+/**
+ * An <code>Engine</code> searches a game for the best move of the player to move, using an iterative-deepening alpha-beta search.<br>
+ * Positions are evaluated by the difference between the number of fences each player still needs to connect its sides.
+ * All search state is allocated once per engine, so an engine should not be used by several threads at the same time.
+ * Results are kept in a {@link TranspositionTable}, which may be shared with other engines.
+ * With {@link #search(Position, long, int)}, a single search can use several threads.
+ * @see fences.engine.Position
+ * @author Jakob Danckwerts
+ */
+public class Engine {
+	/**
+	 * Score of a won position. Wins found after <code>n</code> plies score <code>WIN - n</code>, losses <code>n - WIN</code>.
+	 */
+	public static final int WIN = 1_000_000;
+	protected static final int INFINITY = 2 * WIN;
+	/**
+	 * Scores beyond this bound are wins or losses, whose distance from the root is adjusted when they pass through the transposition table.
+	 */
+	private static final int WIN_BOUND = WIN / 2;
+	
+	/**
+	 * Number of nodes searched between two checks of the clock.
+	 */
+	private static final int CHECK_INTERVAL = 1024;
+	
+	protected int maxDepth = 64;
+	protected TranspositionTable table;
+	
+	private int[][] moves = new int[0][];
+	private int[][] scores = new int[0][];
+	private int[][] killers = new int[0][];
+	private int[] history = new int[0];
+	private long nodes;
+	private long deadline;
+	private boolean stopped;
+	private volatile boolean aborted;
+	private int rootBest;
+	private Engine[] helpers = new Engine[0];
+	
+	public Engine() {
+		this(64);
+	}
+	
+	/**
+	 * Creates an engine that searches no deeper than the given number of plies.
+	 * @author Jakob Danckwerts
+	 */
+	public Engine(int maxDepth) {
+		this(maxDepth, new TranspositionTable(1 << 16));
+	}
+	
+	/**
+	 * Creates an engine that searches no deeper than the given number of plies and keeps its results in the given table.
+	 * @author Jakob Danckwerts
+	 */
+	public Engine(int maxDepth, TranspositionTable table) {
+		if(maxDepth < 1) throw new IllegalArgumentException("maxDepth must be positive");
+		this.maxDepth = maxDepth;
+		this.table = table;
+	}
+	
+	public TranspositionTable table() {
+		return table;
+	}
+	
+	/**
+	 * Searches the given game for at most the given number of milliseconds.
+	 * @see fences.engine.Engine#search(Position, long)
+	 * @author Jakob Danckwerts
+	 */
+	public SearchResult search(Game game, long millis) {
+		return search(new Position(game), millis);
+	}
+	
+	/**
+	 * Searches the given position for at most the given number of milliseconds and returns the best move found.
+	 * The search deepens one ply at a time until the time is up, the maximum depth is reached or the game is decided.
+	 * The position is left unchanged. If there is no move to make, the result's index is -1.
+	 * @author Jakob Danckwerts
+	 */
+	public SearchResult search(Position position, long millis) {
+		return search(position, millis, 1);
+	}
+	
+	/**
+	 * Searches the given game with the given number of threads for at most the given number of milliseconds.
+	 * @see fences.engine.Engine#search(Position, long, int)
+	 * @author Jakob Danckwerts
+	 */
+	public SearchResult search(Game game, long millis, int threads) {
+		return search(new Position(game), millis, threads);
+	}
+	
+	/**
+	 * Searches the given position with the given number of threads for at most the given number of milliseconds and returns the best move found.<br>
+	 * Additional threads run the same iterative deepening on copies of the position, every other one starting a ply deeper,
+	 * and only communicate through the shared transposition table ("Lazy SMP"). They fill the table with results
+	 * that let the calling thread, whose result is returned, reach greater depths. Each helper allocates its own search state
+	 * on first use and keeps it for later searches. The result's nodes include the nodes of all threads.
+	 * @see fences.engine.Engine#search(Position, long)
+	 * @author Jakob Danckwerts
+	 */
+	public SearchResult search(Position position, long millis, int threads) {
+		if(threads < 1) throw new IllegalArgumentException("threads must be positive");
+		long start = System.nanoTime();
+		long deadline = start + Math.max(1, millis) * 1_000_000L;
+		table.newSearch();
+		
+		if(helpers.length < threads - 1) {
+			Engine[] grown = new Engine[threads - 1];
+			System.arraycopy(helpers, 0, grown, 0, helpers.length);
+			for(int i = helpers.length; i<grown.length; i++) grown[i] = helper();
+			helpers = grown;
+		}
+		Thread[] running = new Thread[threads - 1];
+		for(int i = 0; i<running.length; i++) {
+			Engine helper = helpers[i];
+			Position copy = position.copy();
+			int first = 1 + ((i + 1) & 1);
+			helper.aborted = false;
+			running[i] = new Thread(() -> helper.iterate(copy, deadline, first), "Engine helper " + (i + 1));
+			running[i].setDaemon(true);
+			running[i].start();
+		}
+		
+		SearchResult result = iterate(position, deadline, 1);
+		long nodes = result.nodes();
+		for(int i = 0; i<running.length; i++) {
+			helpers[i].aborted = true;
+			boolean interrupted = false;
+			while(true) {
+				try {
+					running[i].join();
+					break;
+				} catch(InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if(interrupted) Thread.currentThread().interrupt();
+			nodes += helpers[i].nodes;
+		}
+		
+		long elapsed = (System.nanoTime() - start) / 1_000_000;
+		return new SearchResult(result.index(), result.x(), result.y(), result.score(), result.depth(), nodes, elapsed);
+	}
+	
+	/**
+	 * Creates an engine to help with multi-threaded searches. It must share this engine's transposition table.
+	 * @author Jakob Danckwerts
+	 */
+	protected Engine helper() {
+		return new Engine(maxDepth, table);
+	}
+	
+	/**
+	 * Deepens the search one ply at a time from the given depth until the deadline or the maximum depth is reached, the game is decided or the search is aborted.
+	 */
+	private SearchResult iterate(Position position, long deadline, int firstDepth) {
+		long start = System.nanoTime();
+		prepare(position);
+		nodes = 0;
+		stopped = false;
+		this.deadline = deadline;
+		
+		int best = -1;
+		int bestScore = 0;
+		int depth = 0;
+		int limit = Math.min(maxDepth, position.emptyCount());
+		for(int d = Math.min(firstDepth, Math.max(1, limit)); d<=limit; d++) {
+			rootBest = -1;
+			int score = negamax(position, d, 0, -INFINITY, INFINITY, best);
+			if(stopped) {
+				// the previous best move is searched first, so a partial iteration can only have improved on it
+				if(rootBest >= 0) best = rootBest;
+				break;
+			}
+			best = rootBest;
+			bestScore = score;
+			depth = d;
+			if(Math.abs(score) >= WIN - position.size()) break;
+		}
+		if(best < 0) best = firstMove(position);
+		
+		long elapsed = (System.nanoTime() - start) / 1_000_000;
+		if(best < 0) return new SearchResult(-1, 0, 0, bestScore, depth, nodes, elapsed);
+		return new SearchResult(best, position.x(best), position.y(best), bestScore, depth, nodes, elapsed);
+	}
+	
+	/**
+	 * Evaluates a position from the point of view of the player to move.
+	 * @author Jakob Danckwerts
+	 */
+	protected int evaluate(Position position, int own, int opponent) {
+		return (opponent - own) * 100 + 10;
+	}
+	
+	private void prepare(Position position) {
+		int size = position.size();
+		int plies = maxDepth + 1;
+		if(moves.length < plies || (moves.length > 0 && moves[0].length < size)) {
+			moves = new int[plies][size];
+			scores = new int[plies][size];
+			killers = new int[plies][2];
+		}
+		if(history.length < size) history = new int[size];
+		
+		for(int i = 0; i<plies; i++) {
+			killers[i][0] = -1;
+			killers[i][1] = -1;
+		}
+		for(int i = 0; i<size; i++) history[i] = 0;
+	}
+	
+	private int negamax(Position position, int depth, int ply, int alpha, int beta, int first) {
+		if(++nodes % CHECK_INTERVAL == 0 && (aborted || System.nanoTime() - deadline > 0)) stopped = true;
+		if(stopped) return 0;
+		
+		// positions in the table are never decided, since decided positions are not stored
+		long hash = position.hash();
+		long entry = table.probe(hash);
+		if(entry != 0) {
+			if(ply > 0 && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if(bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha)) return score;
+			}
+			if(first < 0) first = TranspositionTable.move(entry);
+		}
+		
+		int side = position.sideToMove();
+		int own = position.distance(side);
+		int opponent = position.distance(side ^ 1);
+		if(opponent == 0) return ply - WIN;
+		if(own == 0) return WIN - ply;
+		if(own == Position.UNREACHABLE) return ply - WIN;
+		if(opponent == Position.UNREACHABLE) return WIN - ply;
+		
+		int[] list = moves[ply];
+		int count = generate(position, list, ply, first);
+		if(depth == 0 || count == 0) return evaluate(position, own, opponent);
+		
+		int[] order = scores[ply];
+		int start = alpha;
+		int best = -INFINITY;
+		int bestMove = -1;
+		for(int i = 0; i<count; i++) {
+			// selection sort: pick the most promising remaining move
+			int pick = i;
+			for(int j = i + 1; j<count; j++) {
+				if(order[j] > order[pick]) pick = j;
+			}
+			int move = list[pick];
+			list[pick] = list[i];
+			list[i] = move;
+			int s = order[pick];
+			order[pick] = order[i];
+			order[i] = s;
+			
+			position.play(move);
+			int score = -negamax(position, depth - 1, ply + 1, -beta, -alpha, -1);
+			position.undo(move);
+			if(stopped) return best;
+			
+			if(score > best) {
+				best = score;
+				bestMove = move;
+				if(ply == 0) rootBest = move;
+			}
+			if(score > alpha) alpha = score;
+			if(alpha >= beta) {
+				if(killers[ply][0] != move) {
+					killers[ply][1] = killers[ply][0];
+					killers[ply][0] = move;
+				}
+				history[move] += depth * depth;
+				break;
+			}
+		}
+		
+		int bound = best >= beta ? TranspositionTable.LOWER : best > start ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(hash, bestMove, toTable(best, ply), depth, bound);
+		return best;
+	}
+	
+	/**
+	 * Converts a win or loss relative to the root into one relative to the current position, so that it stays valid wherever the position is reached.
+	 */
+	private static int toTable(int score, int ply) {
+		if(score > WIN_BOUND) return score + ply;
+		if(score < -WIN_BOUND) return score - ply;
+		return score;
+	}
+	
+	private static int fromTable(int score, int ply) {
+		if(score > WIN_BOUND) return score - ply;
+		if(score < -WIN_BOUND) return score + ply;
+		return score;
+	}
+	
+	/**
+	 * Fills <code>list</code> with the moves worth searching and <code>scores[ply]</code> with their ordering scores, returning their number.
+	 * Fences that connect nothing are only considered if nothing else is left.
+	 */
+	private int generate(Position position, int[] list, int ply, int first) {
+		int[] order = scores[ply];
+		int size = position.size();
+		int count = 0;
+		for(int i = 0; i<size; i++) {
+			if(position.isEmpty(i) && position.isUseful(i)) {
+				list[count] = i;
+				order[count] = moveScore(i, ply, first);
+				count++;
+			}
+		}
+		if(count > 0) return count;
+		
+		for(int i = 0; i<size; i++) {
+			if(position.isEmpty(i)) {
+				list[count] = i;
+				order[count] = 0;
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	private int moveScore(int move, int ply, int first) {
+		if(move == first) return Integer.MAX_VALUE;
+		if(move == killers[ply][0]) return Integer.MAX_VALUE - 2;
+		if(move == killers[ply][1]) return Integer.MAX_VALUE - 3;
+		return Math.min(history[move], Integer.MAX_VALUE - 4);
+	}
+	
+	private static int firstMove(Position position) {
+		for(int i = 0; i<position.size(); i++) {
+			if(position.isEmpty(i) && position.isUseful(i)) return i;
+		}
+		for(int i = 0; i<position.size(); i++) {
+			if(position.isEmpty(i)) return i;
+		}
+		return -1;
+	}
+}
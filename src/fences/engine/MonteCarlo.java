@@ -0,0 +1,251 @@
+package fences.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import fences.Game;
+
+/**
+ * <code>MonteCarlo</code> chooses moves by a parallel Monte Carlo tree search: random games are played to the end from the current position
+ * and the moves that win most often are explored further.<br><br>
+ * All threads grow one shared tree without locking. A thread passing through a node counts a visit right away and its result only when the playout is done,
+ * so until then the visit counts as a loss (a "virtual loss") and steers the other threads towards different moves.
+ * A new node is only expanded after a few visits, and racing expansions of the same node are settled by a compare-and-set.<br>
+ * The number of playouts per second, reported by <code>SearchResult.nodesPerSecond()</code>, can be used to estimate how many games a machine can play at once.
+ * @see fences.engine.Position
+ * @author Jakob Danckwerts
+ */
+public class MonteCarlo {
+	/**
+	 * Number of visits after which a node is expanded.
+	 */
+	private static final int EXPANSION = 2;
+	private static final double EXPLORATION = 1.0;
+	
+	protected ForkJoinPool pool;
+	protected int threads;
+	
+	/**
+	 * Creates a search using one thread per available processor.
+	 * @author Jakob Danckwerts
+	 */
+	public MonteCarlo() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Creates a search using the given number of threads.
+	 * @author Jakob Danckwerts
+	 */
+	public MonteCarlo(int threads) {
+		if(threads < 1) throw new IllegalArgumentException("threads must be positive");
+		this.threads = threads;
+		this.pool = new ForkJoinPool(threads);
+	}
+	
+	public int threads() {
+		return threads;
+	}
+	
+	/**
+	 * Stops the threads of this search. Searches started afterwards fail.
+	 * @author Jakob Danckwerts
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Searches the given game for the given number of milliseconds.
+	 * @see fences.engine.MonteCarlo#search(Position, long)
+	 * @author Jakob Danckwerts
+	 */
+	public SearchResult search(Game game, long millis) {
+		return search(new Position(game), millis);
+	}
+	
+	/**
+	 * Searches the given position for the given number of milliseconds and returns the most visited move.<br>
+	 * The result's score is the estimated chance to win with that move in per mille, its depth the deepest path of the tree
+	 * and its nodes the number of playouts. If there is no move to make, the result's index is -1.
+	 * The position is left unchanged.
+	 * @author Jakob Danckwerts
+	 */
+	public SearchResult search(Position position, long millis) {
+		long start = System.nanoTime();
+		long deadline = start + Math.max(1, millis) * 1_000_000L;
+		Node root = new Node(-1);
+		
+		List<Callable<long[]>> workers = new ArrayList<Callable<long[]>>(threads);
+		for(int i = 0; i<threads; i++) {
+			Position copy = position.copy();
+			workers.add(() -> run(root, copy, deadline));
+		}
+		
+		long playouts = 0;
+		int depth = 0;
+		try {
+			for(Future<long[]> f: pool.invokeAll(workers)) {
+				long[] stats = f.get();
+				playouts += stats[0];
+				depth = Math.max(depth, (int) stats[1]);
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		long elapsed = (System.nanoTime() - start) / 1_000_000;
+		
+		Node best = null;
+		Node[] children = root.children;
+		if(children != null) {
+			for(Node child: children) {
+				if(best == null || child.visits > best.visits) best = child;
+			}
+		}
+		if(best == null) {
+			int move = -1;
+			for(int i = 0; i<position.size() && move < 0; i++) {
+				if(position.isEmpty(i)) move = i;
+			}
+			if(move < 0) return new SearchResult(-1, 0, 0, 0, depth, playouts, elapsed);
+			return new SearchResult(move, position.x(move), position.y(move), 0, depth, playouts, elapsed);
+		}
+		int score = best.visits > 0 ? (int) (1000L * best.wins / best.visits) : 0;
+		return new SearchResult(best.move, position.x(best.move), position.y(best.move), score, depth, playouts, elapsed);
+	}
+	
+	/**
+	 * Runs playouts until the deadline and returns their number and the deepest path of the tree seen.
+	 */
+	private long[] run(Node root, Position position, long deadline) {
+		int rootSide = position.sideToMove();
+		Node[] path = new Node[position.emptyCount() + 1];
+		int[] buffer = new int[position.size()];
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long playouts = 0;
+		int depth = 0;
+		
+		while(System.nanoTime() - deadline < 0) {
+			// selection: descend along the best children, counting a visit in each node on the way
+			Node node = root;
+			int length = 0;
+			path[length++] = root;
+			Node.VISITS.incrementAndGet(root);
+			int winner = -1;
+			while(true) {
+				Node[] children = node.children;
+				if(children == null && node.visits >= EXPANSION) children = expand(node, position);
+				if(children == null) break;
+				if(children.length == 0) {
+					winner = node.winner;
+					break;
+				}
+				node = select(node, children);
+				Node.VISITS.incrementAndGet(node);
+				position.play(node.move);
+				path[length++] = node;
+			}
+			if(length > depth) depth = length;
+			
+			if(winner < 0) winner = playout(position, buffer, random);
+			
+			// backpropagation: a node is won if the player who moved into it won the game
+			for(int i = length - 1; i>=1; i--) {
+				Node n = path[i];
+				if(winner == (rootSide ^ ((i - 1) & 1))) Node.WINS.incrementAndGet(n);
+				position.undo(n.move);
+			}
+			playouts++;
+		}
+		return new long[] {playouts, depth - 1};
+	}
+	
+	/**
+	 * Creates the children of a node, or marks it as decided with an empty array if a player has already connected its sides.
+	 */
+	private static Node[] expand(Node node, Position position) {
+		Node[] children;
+		int winner = position.winner();
+		if(winner >= 0) {
+			node.winner = winner;
+			children = new Node[0];
+		} else {
+			int count = 0;
+			for(int i = 0; i<position.size(); i++) {
+				if(position.isEmpty(i) && position.isUseful(i)) count++;
+			}
+			children = new Node[count];
+			count = 0;
+			for(int i = 0; i<position.size(); i++) {
+				if(position.isEmpty(i) && position.isUseful(i)) children[count++] = new Node(i);
+			}
+		}
+		if(Node.CHILDREN.compareAndSet(node, null, children)) return children;
+		return node.children;
+	}
+	
+	/**
+	 * Picks the child with the highest upper confidence bound, preferring unvisited children.
+	 */
+	private static Node select(Node node, Node[] children) {
+		double log = Math.log(Math.max(1, node.visits));
+		Node best = children[0];
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(Node child: children) {
+			int visits = child.visits;
+			if(visits == 0) return child;
+			double value = (double) child.wins / visits + EXPLORATION * Math.sqrt(log / visits);
+			if(value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Fills all useful fields in random order, takes the moves back and returns the winner.
+	 * On a completely filled board exactly one player has connected its sides, so a single distance suffices.
+	 */
+	private static int playout(Position position, int[] buffer, ThreadLocalRandom random) {
+		int count = 0;
+		for(int i = 0; i<position.size(); i++) {
+			if(position.isEmpty(i) && position.isUseful(i)) buffer[count++] = i;
+		}
+		for(int i = 0; i<count; i++) {
+			int j = i + random.nextInt(count - i);
+			int move = buffer[j];
+			buffer[j] = buffer[i];
+			buffer[i] = move;
+			position.play(move);
+		}
+		int winner = position.distance(0) == 0 ? 0 : 1;
+		for(int i = count - 1; i>=0; i--) position.undo(buffer[i]);
+		return winner;
+	}
+	
+	protected static class Node {
+		static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+		static final AtomicIntegerFieldUpdater<Node> WINS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "wins");
+		static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+		
+		final int move;
+		volatile int visits;
+		volatile int wins;
+		volatile Node[] children;
+		volatile int winner = -1;
+		
+		Node(int move) {
+			this.move = move;
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package fences.engine;
+
+import fences.Board;
+import fences.Game;
+
+/**
+ * A <code>Position</code> is a mutable, allocation-free game state used for searching. Moves are played and taken back in place.<br><br>
+ * The board is regarded as a Gale (Bridg-It) board: every row of the API's board consists of a big row of <code>width</code> fences
+ * followed by a small row of <code>width-1</code> fences, each fence connecting two dots of its owner's grid while cutting through the opponent's.
+ * <ul>
+ * 	<li>Player 0 owns a grid of <code>height+1</code> rows by <code>width</code> dots and tries to connect its top row to its bottom row.
+ * 	A fence in a big row is a vertical connection for player 0, a fence in a small row a horizontal one.</li>
+ * 	<li>Player 1 owns a grid of <code>height</code> rows by <code>width+1</code> dots and tries to connect its left column to its right column.
+ * 	A fence in a big row is a horizontal connection for player 1, a fence in a small row a vertical one.</li>
+ * </ul>
+ * The fences of the last small row, if the API sends it, do not connect anything for either player.
+ * Board coordinates are converted with {@link #x(int)} and {@link #y(int)}, which follow the convention of <code>Client.makeTurn</code>.
+ * @author Jakob Danckwerts
+ */
+public class Position {
+	/**
+	 * Distance returned by {@link #distance(int)} if a player can no longer connect its sides.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	
+	protected int width;
+	protected int height;
+	protected int rowLength;
+	protected int size;
+	protected byte[] cells;
+	protected int sideToMove;
+	protected int empty;
+	protected Zobrist zobrist;
+	protected long hash;
+	
+	private int[] dist;
+	private int[] layer;
+	private int[] nextLayer;
+	
+	/**
+	 * Creates a position from a game fetched with <code>Client.getGame</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public Position(Game game) {
+		this(dimension(game.width()), dimension(game.height()), board(game), Boolean.TRUE.equals(game.activePlayer()));
+	}
+	
+	private static int dimension(Long value) {
+		if(value == null) throw new IllegalArgumentException("Game dimensions are unknown");
+		return value.intValue();
+	}
+	
+	private static Board board(Game game) {
+		if(game.board() == null) throw new IllegalArgumentException("Game board is unknown");
+		return game.board();
+	}
+	
+	/**
+	 * Creates a position from a board of the given dimensions. <code>activePlayer</code> is <code>true</code> if player 1 is to move.
+	 * @author Jakob Danckwerts
+	 */
+	public Position(int width, int height, Board board, boolean activePlayer) {
+		if(width < 1 || height < 1) throw new IllegalArgumentException("Invalid board dimensions " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		this.rowLength = 2 * width - 1;
+		this.size = board.size();
+		if(size != height * rowLength && size != height * rowLength - (width - 1)) {
+			throw new IllegalArgumentException("Board of " + size + " fields does not match dimensions " + width + "x" + height);
+		}
+		
+		this.cells = new byte[size];
+		for(int i = 0; i<size; i++) {
+			cells[i] = (byte) board.get(i).value;
+			if(cells[i] == 0) empty++;
+		}
+		this.sideToMove = activePlayer ? 1 : 0;
+		this.zobrist = new Zobrist(width, height, size);
+		this.hash = zobrist.hash(board, activePlayer);
+		
+		int nodes = Math.max((height + 1) * width, height * (width + 1));
+		this.dist = new int[nodes];
+		this.layer = new int[nodes];
+		this.nextLayer = new int[nodes];
+	}
+	
+	protected Position(Position position) {
+		this.width = position.width;
+		this.height = position.height;
+		this.rowLength = position.rowLength;
+		this.size = position.size;
+		this.cells = position.cells.clone();
+		this.sideToMove = position.sideToMove;
+		this.empty = position.empty;
+		this.zobrist = position.zobrist;
+		this.hash = position.hash;
+		this.dist = new int[position.dist.length];
+		this.layer = new int[position.layer.length];
+		this.nextLayer = new int[position.nextLayer.length];
+	}
+	
+	/**
+	 * Returns an independent copy of this position.
+	 * @author Jakob Danckwerts
+	 */
+	public Position copy() {
+		return new Position(this);
+	}
+	
+	public int width() {
+		return width;
+	}
+	
+	public int height() {
+		return height;
+	}
+	
+	/**
+	 * Returns the number of fields of the board.
+	 * @author Jakob Danckwerts
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the player to move, 0 or 1.
+	 * @author Jakob Danckwerts
+	 */
+	public int sideToMove() {
+		return sideToMove;
+	}
+	
+	/**
+	 * Returns the number of unoccupied fields.
+	 * @author Jakob Danckwerts
+	 */
+	public int emptyCount() {
+		return empty;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of this position, which is updated with every move played or taken back.
+	 * @see fences.engine.Zobrist
+	 * @author Jakob Danckwerts
+	 */
+	public long hash() {
+		return hash;
+	}
+	
+	/**
+	 * Returns the owner of the field at the given index: -1 if it is empty, otherwise 0 or 1.
+	 * @author Jakob Danckwerts
+	 */
+	public int owner(int index) {
+		return cells[index] - 1;
+	}
+	
+	public boolean isEmpty(int index) {
+		return cells[index] == 0;
+	}
+	
+	/**
+	 * Returns whether a fence at the given index connects anything, i.e. whether it is not part of the last small row.
+	 * @author Jakob Danckwerts
+	 */
+	public boolean isUseful(int index) {
+		return index < (height - 1) * rowLength + width;
+	}
+	
+	/**
+	 * Places a fence of the player to move at the given index and passes the turn.
+	 * @author Jakob Danckwerts
+	 */
+	public void play(int index) {
+		cells[index] = (byte) (sideToMove + 1);
+		hash ^= zobrist.key(index, sideToMove) ^ zobrist.sideKey();
+		sideToMove ^= 1;
+		empty--;
+	}
+	
+	/**
+	 * Takes back the fence at the given index, which must have been the last move played.
+	 * @author Jakob Danckwerts
+	 */
+	public void undo(int index) {
+		cells[index] = 0;
+		sideToMove ^= 1;
+		hash ^= zobrist.key(index, sideToMove) ^ zobrist.sideKey();
+		empty++;
+	}
+	
+	/**
+	 * Returns the x coordinate of the field at the given index as expected by <code>Client.makeTurn</code>, counting from one.
+	 * @author Jakob Danckwerts
+	 */
+	public int x(int index) {
+		return index % rowLength + 1;
+	}
+	
+	/**
+	 * Returns the y coordinate of the field at the given index as expected by <code>Client.makeTurn</code>, counting from one.
+	 * @author Jakob Danckwerts
+	 */
+	public int y(int index) {
+		return index / rowLength + 1;
+	}
+	
+	/**
+	 * Returns the index of the field with the given coordinates.
+	 * @see fences.engine.Position#x(int)
+	 * @see fences.engine.Position#y(int)
+	 * @author Jakob Danckwerts
+	 */
+	public int index(int x, int y) {
+		return (y - 1) * rowLength + (x - 1);
+	}
+	
+	/**
+	 * Returns the winner, 0 or 1, or -1 if neither player has connected its sides yet.
+	 * @author Jakob Danckwerts
+	 */
+	public int winner() {
+		if(distance(0) == 0) return 0;
+		if(distance(1) == 0) return 1;
+		return -1;
+	}
+	
+	/**
+	 * Returns the minimum number of further fences the given player needs to connect its sides, 0 if it already has,
+	 * or {@link #UNREACHABLE} if the opponent has cut it off.
+	 * Computed with a breadth-first search over the player's grid in which own fences cost nothing and empty fields cost one.
+	 * @author Jakob Danckwerts
+	 */
+	public int distance(int player) {
+		int rows = player == 0 ? height + 1 : height;
+		int columns = player == 0 ? width : width + 1;
+		int nodes = rows * columns;
+		int[] dist = this.dist;
+		int[] current = this.layer;
+		int[] next = this.nextLayer;
+		int currentSize = 0;
+		int nextSize = 0;
+		
+		for(int i = 0; i<nodes; i++) dist[i] = UNREACHABLE;
+		if(player == 0) {
+			for(int c = 0; c<columns; c++) {
+				dist[c] = 0;
+				current[currentSize++] = c;
+			}
+		} else {
+			for(int r = 0; r<rows; r++) {
+				dist[r * columns] = 0;
+				current[currentSize++] = r * columns;
+			}
+		}
+		
+		int d = 0;
+		byte own = (byte) (player + 1);
+		while(currentSize > 0) {
+			while(currentSize > 0) {
+				int node = current[--currentSize];
+				if(dist[node] != d) continue;
+				int r = node / columns;
+				int c = node % columns;
+				if(player == 0 ? r == rows - 1 : c == columns - 1) return d;
+				
+				// the up to four fences around this dot and the dots they lead to
+				for(int k = 0; k<4; k++) {
+					int slot;
+					int neighbor;
+					if(player == 0) {
+						switch(k) {
+						case 0:
+							if(r == 0) continue;
+							slot = (r - 1) * rowLength + c;
+							neighbor = node - columns;
+							break;
+						case 1:
+							if(r == rows - 1) continue;
+							slot = r * rowLength + c;
+							neighbor = node + columns;
+							break;
+						case 2:
+							if(r == 0 || c == 0) continue;
+							slot = (r - 1) * rowLength + width + c - 1;
+							neighbor = node - 1;
+							break;
+						default:
+							if(r == 0 || c == columns - 1) continue;
+							slot = (r - 1) * rowLength + width + c;
+							neighbor = node + 1;
+						}
+					} else {
+						switch(k) {
+						case 0:
+							if(c == 0) continue;
+							slot = r * rowLength + c - 1;
+							neighbor = node - 1;
+							break;
+						case 1:
+							if(c == columns - 1) continue;
+							slot = r * rowLength + c;
+							neighbor = node + 1;
+							break;
+						case 2:
+							if(r == 0 || c == 0 || c == columns - 1) continue;
+							slot = (r - 1) * rowLength + width + c - 1;
+							neighbor = node - columns;
+							break;
+						default:
+							if(r == rows - 1 || c == 0 || c == columns - 1) continue;
+							slot = r * rowLength + width + c - 1;
+							neighbor = node + columns;
+						}
+					}
+					
+					byte cell = cells[slot];
+					if(cell == own) {
+						if(dist[neighbor] > d) {
+							dist[neighbor] = d;
+							current[currentSize++] = neighbor;
+						}
+					} else if(cell == 0) {
+						if(dist[neighbor] > d + 1) {
+							dist[neighbor] = d + 1;
+							next[nextSize++] = neighbor;
+						}
+					}
+				}
+			}
+			
+			int[] swap = current;
+			current = next;
+			next = swap;
+			currentSize = nextSize;
+			nextSize = 0;
+			d++;
+		}
+		return UNREACHABLE;
+	}
+}
@@ -0,0 +1,95 @@
+package fences.engine;
+
+/**
+ * A <code>SearchResult</code> stores the outcome of a search: the best move found and some statistics about the search itself.
+ * @author Jakob Danckwerts
+ */
+public class SearchResult {
+	protected int index;
+	protected int x;
+	protected int y;
+	protected int score;
+	protected int depth;
+	protected long nodes;
+	protected long millis;
+	
+	public SearchResult(int index, int x, int y, int score, int depth, long nodes, long millis) {
+		this.index = index;
+		this.x = x;
+		this.y = y;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.millis = millis;
+	}
+	
+	@Override
+	public String toString() {
+		return "SearchResult { x=" + x + ", y=" + y + ", score=" + score + ", depth=" + depth + ", nodes=" + nodes + ", millis=" + millis + " }";
+	}
+	
+	/**
+	 * Returns the board index of the best move, or -1 if there was no move to make.
+	 * @author Jakob Danckwerts
+	 */
+	public int index() {
+		return index;
+	}
+	
+	/**
+	 * Returns the x coordinate of the best move as expected by <code>Client.makeTurn</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public int x() {
+		return x;
+	}
+	
+	/**
+	 * Returns the y coordinate of the best move as expected by <code>Client.makeTurn</code>.
+	 * @author Jakob Danckwerts
+	 */
+	public int y() {
+		return y;
+	}
+	
+	/**
+	 * Returns the score of the best move from the point of view of the player to move.
+	 * Scores beyond <code>Engine.WIN</code> minus the board size announce a forced win (positive) or loss (negative).
+	 * @author Jakob Danckwerts
+	 */
+	public int score() {
+		return score;
+	}
+	
+	/**
+	 * Returns the depth of the last completed search iteration in plies.
+	 * @author Jakob Danckwerts
+	 */
+	public int depth() {
+		return depth;
+	}
+	
+	/**
+	 * Returns the number of positions visited.
+	 * @author Jakob Danckwerts
+	 */
+	public long nodes() {
+		return nodes;
+	}
+	
+	/**
+	 * Returns the time the search took in milliseconds.
+	 * @author Jakob Danckwerts
+	 */
+	public long millis() {
+		return millis;
+	}
+	
+	/**
+	 * Returns the number of positions visited per second.
+	 * @author Jakob Danckwerts
+	 */
+	public long nodesPerSecond() {
+		return millis > 0 ? nodes * 1000 / millis : nodes * 1000;
+	}
+}
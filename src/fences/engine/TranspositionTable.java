@@ -0,0 +1,147 @@
+package fences.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free transposition table that stores search results by position hash and can be shared by any number of search threads.<br><br>
+ * Each entry consists of two <code>long</code> words: the packed data (move, score, depth, bound and generation) and the hash XORed with the data.
+ * Writers claim an entry by a compare-and-set on its data word, readers accept an entry only if both words still belong together.
+ * A lookup that races with a write therefore never returns a torn entry, it simply misses.<br>
+ * Entries are grouped into buckets of two. A new result replaces the entry of the same position if there is one,
+ * otherwise the bucket's entry that is least worth keeping, preferring entries of earlier searches and shallower depths.
+ * @author Jakob Danckwerts
+ */
+public class TranspositionTable {
+	/** The stored score is exact. */
+	public static final int EXACT = 1;
+	/** The stored score is a lower bound, the search failed high. */
+	public static final int LOWER = 2;
+	/** The stored score is an upper bound, the search failed low. */
+	public static final int UPPER = 3;
+	
+	private static final int BUCKET = 2;
+	
+	protected final AtomicLongArray table;
+	protected final int mask;
+	protected volatile int generation;
+	
+	/**
+	 * Creates a table with at least the given number of entries, rounded up to a power of two.
+	 * @author Jakob Danckwerts
+	 */
+	public TranspositionTable(int entries) {
+		if(entries < 1 || entries > 1 << 28) throw new IllegalArgumentException("Invalid number of entries " + entries);
+		int capacity = Math.max(BUCKET, Integer.highestOneBit(entries - 1) << 1);
+		this.table = new AtomicLongArray(2 * capacity);
+		this.mask = capacity - 1;
+	}
+	
+	/**
+	 * Starts a new search generation. Entries of earlier generations are replaced first.
+	 * @author Jakob Danckwerts
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xff;
+	}
+	
+	/**
+	 * Removes all entries.
+	 * @author Jakob Danckwerts
+	 */
+	public void clear() {
+		for(int i = 0; i<table.length(); i++) table.set(i, 0);
+	}
+	
+	/**
+	 * Returns the number of entries of this table.
+	 * @author Jakob Danckwerts
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+	
+	/**
+	 * Returns the packed data stored for the given hash, or 0 if there is none.
+	 * The fields of the data are extracted with {@link #move(long)}, {@link #score(long)}, {@link #depth(long)} and {@link #bound(long)}.
+	 * @author Jakob Danckwerts
+	 */
+	public long probe(long hash) {
+		int first = (int) hash & mask & -BUCKET;
+		for(int i = first; i<first + BUCKET; i++) {
+			long data = table.get(2 * i + 1);
+			if(data != 0 && (table.get(2 * i) ^ data) == hash) return data;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Stores a search result. <code>move</code> is the best move found or -1, <code>bound</code> one of {@link #EXACT}, {@link #LOWER} and {@link #UPPER}.
+	 * If another thread writes the same entry at the same time, one of both results is dropped.
+	 * @author Jakob Danckwerts
+	 */
+	public void store(long hash, int move, int score, int depth, int bound) {
+		int generation = this.generation;
+		long data = pack(move, score, depth, bound, generation);
+		int first = (int) hash & mask & -BUCKET;
+		
+		int replace = first;
+		long replaced = table.get(2 * first + 1);
+		int worth = Integer.MAX_VALUE;
+		for(int i = first; i<first + BUCKET; i++) {
+			long old = table.get(2 * i + 1);
+			if(old == 0 || (table.get(2 * i) ^ old) == hash) {
+				// the same position is kept if it was searched deeper in this search
+				if(old != 0 && generation(old) == generation && depth(old) > depth && bound != EXACT) return;
+				replace = i;
+				replaced = old;
+				break;
+			}
+			int w = depth(old) - 4 * ((generation - generation(old)) & 0xff);
+			if(w < worth) {
+				worth = w;
+				replace = i;
+				replaced = old;
+			}
+		}
+		
+		if(table.compareAndSet(2 * replace + 1, replaced, data)) {
+			table.set(2 * replace, hash ^ data);
+		}
+	}
+	
+	/**
+	 * Packs an entry into a single non-zero word: move + 1 in bits 0-15, depth in bits 16-23, bound in bits 24-25,
+	 * generation in bits 26-33 and the signed score in bits 34-63.
+	 */
+	protected static long pack(int move, int score, int depth, int bound, int generation) {
+		return ((long) (move + 1) & 0xffff)
+				| ((long) (depth & 0xff) << 16)
+				| ((long) (bound & 3) << 24)
+				| ((long) (generation & 0xff) << 26)
+				| ((long) score << 34);
+	}
+	
+	/**
+	 * Returns the best move of a probed entry, or -1 if none was stored.
+	 * @author Jakob Danckwerts
+	 */
+	public static int move(long data) {
+		return (int) (data & 0xffff) - 1;
+	}
+	
+	public static int score(long data) {
+		return (int) (data >> 34);
+	}
+	
+	public static int depth(long data) {
+		return (int) (data >>> 16) & 0xff;
+	}
+	
+	public static int bound(long data) {
+		return (int) (data >>> 24) & 3;
+	}
+	
+	protected static int generation(long data) {
+		return (int) (data >>> 26) & 0xff;
+	}
+}
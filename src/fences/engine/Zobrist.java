@@ -0,0 +1,86 @@
+package fences.engine;
+
+import java.util.SplittableRandom;
+
+import fences.Board;
+import fences.Game;
+
+/**
+ * <code>Zobrist</code> keys for hashing positions of a given board size. Every field has one random key per player
+ * and the hash of a position is the XOR of the keys of all occupied fields, combined with a key for the player to move.
+ * Since XOR is its own inverse, the hash can be updated with a single operation per move.<br>
+ * Keys are generated from a seed derived from the board's dimensions, so equal positions always hash equally,
+ * and positions on boards of different sizes do not share keys.
+ * @see fences.engine.Position#hash()
+ * @author Jakob Danckwerts
+ */
+public class Zobrist {
+	protected int width;
+	protected int height;
+	protected long[] keys;
+	protected long sideKey;
+	protected long boardKey;
+	
+	/**
+	 * Creates the keys for a board of the given dimensions and number of fields.
+	 * @author Jakob Danckwerts
+	 */
+	public Zobrist(int width, int height, int size) {
+		this.width = width;
+		this.height = height;
+		SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L * (31L * width + height) + size);
+		this.keys = new long[2 * size];
+		for(int i = 0; i<keys.length; i++) keys[i] = random.nextLong();
+		this.sideKey = random.nextLong();
+		this.boardKey = random.nextLong();
+	}
+	
+	/**
+	 * Returns the key of the given player, 0 or 1, owning the field at the given index.
+	 * @author Jakob Danckwerts
+	 */
+	public long key(int index, int player) {
+		return keys[2 * index + player];
+	}
+	
+	/**
+	 * Returns the key that is toggled whenever the turn passes.
+	 * @author Jakob Danckwerts
+	 */
+	public long sideKey() {
+		return sideKey;
+	}
+	
+	/**
+	 * Computes the hash of a board from scratch. <code>activePlayer</code> is <code>true</code> if player 1 is to move.
+	 * @author Jakob Danckwerts
+	 */
+	public long hash(Board board, boolean activePlayer) {
+		long hash = boardKey;
+		for(int word = 0; word<board.words(); word++) {
+			long mask0 = board.mask(Game.Field.player0, word);
+			long mask1 = board.mask(Game.Field.player1, word);
+			while(mask0 != 0) {
+				hash ^= keys[2 * ((word << 6) + Long.numberOfTrailingZeros(mask0))];
+				mask0 &= mask0 - 1;
+			}
+			while(mask1 != 0) {
+				hash ^= keys[2 * ((word << 6) + Long.numberOfTrailingZeros(mask1)) + 1];
+				mask1 &= mask1 - 1;
+			}
+		}
+		return activePlayer ? hash ^ sideKey : hash;
+	}
+	
+	/**
+	 * Computes the hash of a game's position from its width, height, content and active player.
+	 * Throws an <code>IllegalArgumentException</code> if any of these is unknown.
+	 * @author Jakob Danckwerts
+	 */
+	public static long hash(Game game) {
+		if(game.width() == null || game.height() == null) throw new IllegalArgumentException("Game dimensions are unknown");
+		if(game.board() == null) throw new IllegalArgumentException("Game board is unknown");
+		Zobrist zobrist = new Zobrist(game.width().intValue(), game.height().intValue(), game.board().size());
+		return zobrist.hash(game.board(), Boolean.TRUE.equals(game.activePlayer()));
+	}
+}
@@ -7,7 +7,8 @@ package json.parser;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -16,7 +17,11 @@ import json.JSONObject;
 
 
 /**
- * Parser for JSON text. Please note that JSONParser is NOT thread-safe.
+ * Parser for JSON text. Please note that JSONParser is NOT thread-safe:
+ * an instance may be reused for any number of documents, but only by one thread at a time.
+ * Use JSONParserPool to share parsers between threads.
+ * 
+ * @see JSONParserPool
  * 
  * @author FangYidong<fangyidong@yahoo.com.cn>
  */
@@ -30,16 +35,52 @@ public class JSONParser {
 	public static final int S_END=6;
 	public static final int S_IN_ERROR=-1;
 	
-	private LinkedList handlerStatusStack;
+	private boolean handlerStarted = false;
 	private Yylex lexer = new Yylex((Reader)null);
+	private Utf8Lexer byteLexer = null;
+	private Lexer source = lexer;
 	private Yytoken token = null;
 	private int status = S_INIT;
 	
-	private int peekStatus(LinkedList statusStack){
-		if(statusStack.size()==0)
+	/*
+	 * Status and value stacks are plain arrays that are kept across reset() calls,
+	 * so parsing does not allocate list nodes or boxed integers for every nested container or key.
+	 */
+	private int[] statusStack = new int[16];
+	private int statusSize = 0;
+	private Object[] valueStack = new Object[16];
+	private int valueSize = 0;
+	
+	private void pushStatus(int status){
+		if(statusSize==statusStack.length)
+			statusStack=Arrays.copyOf(statusStack, statusSize*2);
+		statusStack[statusSize++]=status;
+	}
+	
+	private void popStatus(){
+		statusSize--;
+	}
+	
+	private int peekStatus(){
+		if(statusSize==0)
 			return -1;
-		Integer status=(Integer)statusStack.getFirst();
-		return status.intValue();
+		return statusStack[statusSize-1];
+	}
+	
+	private void pushValue(Object value){
+		if(valueSize==valueStack.length)
+			valueStack=Arrays.copyOf(valueStack, valueSize*2);
+		valueStack[valueSize++]=value;
+	}
+	
+	private Object popValue(){
+		Object value=valueStack[--valueSize];
+		valueStack[valueSize]=null;
+		return value;
+	}
+	
+	private Object peekValue(){
+		return valueStack[valueSize-1];
 	}
 	
     /**
@@ -49,7 +90,10 @@ public class JSONParser {
     public void reset(){
         token = null;
         status = S_INIT;
-        handlerStatusStack = null;
+        handlerStarted = false;
+        statusSize = 0;
+        Arrays.fill(valueStack, 0, valueSize, null);
+        valueSize = 0;
     }
     
     /**
@@ -61,14 +105,34 @@ public class JSONParser {
      */
 	public void reset(Reader in){
 		lexer.yyreset(in);
+		if(byteLexer != null)
+			byteLexer.reset(null, 0, 0);
+		source = lexer;
+		reset();
+	}
+	
+	/**
+	 * Reset the parser to the initial state with new UTF-8 encoded input.
+	 * The bytes are scanned directly, without decoding them to characters first.
+	 * 
+	 * @param in - The array holding the input.
+	 * @param offset - The index of the first byte of the input.
+	 * @param length - The number of bytes of the input.
+	 */
+	public void reset(byte[] in, int offset, int length){
+		if(byteLexer == null)
+			byteLexer = new Utf8Lexer();
+		byteLexer.reset(in, offset, length);
+		source = byteLexer;
 		reset();
 	}
 	
 	/**
 	 * @return The position of the beginning of the current token.
+	 *         For byte input, this is a byte offset rather than a character offset.
 	 */
 	public int getPosition(){
-		return lexer.getPosition();
+		return source.getPosition();
 	}
 	
 	public Object parse(String s) throws ParseException{
@@ -110,9 +174,37 @@ public class JSONParser {
 	 */
 	public Object parse(Reader in, ContainerFactory containerFactory) throws IOException, ParseException{
 		reset(in);
-		LinkedList statusStack = new LinkedList();
-		LinkedList valueStack = new LinkedList();
-		
+		return parse(containerFactory);
+	}
+	
+	public Object parse(byte[] in) throws ParseException{
+		return parse(in, 0, in.length, (ContainerFactory)null);
+	}
+	
+	public Object parse(byte[] in, ContainerFactory containerFactory) throws ParseException{
+		return parse(in, 0, in.length, containerFactory);
+	}
+	
+	/**
+	 * Parse UTF-8 encoded JSON text into java object. The bytes are scanned directly,
+	 * only the contents of string values are decoded.
+	 * 
+	 * @see #parse(Reader, ContainerFactory)
+	 */
+	public Object parse(byte[] in, int offset, int length, ContainerFactory containerFactory) throws ParseException{
+		reset(in, offset, length);
+		try{
+			return parse(containerFactory);
+		}
+		catch(IOException ie){
+			/*
+			 * Actually it will never happen.
+			 */
+			throw new ParseException(-1, ParseException.ERROR_UNEXPECTED_EXCEPTION, ie);
+		}
+	}
+	
+	private Object parse(ContainerFactory containerFactory) throws IOException, ParseException{
 		try{
 			do{
 				nextToken();
@@ -121,18 +213,18 @@ public class JSONParser {
 					switch(token.type){
 					case Yytoken.TYPE_VALUE:
 						status=S_IN_FINISHED_VALUE;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(token.value);
+						pushStatus(status);
+						pushValue(token.value);
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(createObjectContainer(containerFactory));
+						pushStatus(status);
+						pushValue(createObjectContainer(containerFactory));
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(createArrayContainer(containerFactory));
+						pushStatus(status);
+						pushValue(createArrayContainer(containerFactory));
 						break;
 					default:
 						status=S_IN_ERROR;
@@ -141,7 +233,7 @@ public class JSONParser {
 					
 				case S_IN_FINISHED_VALUE:
 					if(token.type==Yytoken.TYPE_EOF)
-						return valueStack.removeFirst();
+						return popValue();
 					else
 						throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
 					
@@ -152,19 +244,19 @@ public class JSONParser {
 					case Yytoken.TYPE_VALUE:
 						if(token.value instanceof String){
 							String key=(String)token.value;
-							valueStack.addFirst(key);
+							pushValue(key);
 							status=S_PASSED_PAIR_KEY;
-							statusStack.addFirst(new Integer(status));
+							pushStatus(status);
 						}
 						else{
 							status=S_IN_ERROR;
 						}
 						break;
 					case Yytoken.TYPE_RIGHT_BRACE:
-						if(valueStack.size()>1){
-							statusStack.removeFirst();
-							valueStack.removeFirst();
-							status=peekStatus(statusStack);
+						if(valueSize>1){
+							popStatus();
+							popValue();
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -181,31 +273,31 @@ public class JSONParser {
 					case Yytoken.TYPE_COLON:
 						break;
 					case Yytoken.TYPE_VALUE:
-						statusStack.removeFirst();
-						String key=(String)valueStack.removeFirst();
-						Map parent=(Map)valueStack.getFirst();
+						popStatus();
+						String key=(String)popValue();
+						Map parent=(Map)peekValue();
 						parent.put(key,token.value);
-						status=peekStatus(statusStack);
+						status=peekStatus();
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
-						statusStack.removeFirst();
-						key=(String)valueStack.removeFirst();
-						parent=(Map)valueStack.getFirst();
+						popStatus();
+						key=(String)popValue();
+						parent=(Map)peekValue();
 						List newArray=createArrayContainer(containerFactory);
 						parent.put(key,newArray);
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(newArray);
+						pushStatus(status);
+						pushValue(newArray);
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
-						statusStack.removeFirst();
-						key=(String)valueStack.removeFirst();
-						parent=(Map)valueStack.getFirst();
+						popStatus();
+						key=(String)popValue();
+						parent=(Map)peekValue();
 						Map newObject=createObjectContainer(containerFactory);
 						parent.put(key,newObject);
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(newObject);
+						pushStatus(status);
+						pushValue(newObject);
 						break;
 					default:
 						status=S_IN_ERROR;
@@ -217,34 +309,34 @@ public class JSONParser {
 					case Yytoken.TYPE_COMMA:
 						break;
 					case Yytoken.TYPE_VALUE:
-						List val=(List)valueStack.getFirst();
+						List val=(List)peekValue();
 						val.add(token.value);
 						break;
 					case Yytoken.TYPE_RIGHT_SQUARE:
-						if(valueStack.size()>1){
-							statusStack.removeFirst();
-							valueStack.removeFirst();
-							status=peekStatus(statusStack);
+						if(valueSize>1){
+							popStatus();
+							popValue();
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
 						}
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
-						val=(List)valueStack.getFirst();
+						val=(List)peekValue();
 						Map newObject=createObjectContainer(containerFactory);
 						val.add(newObject);
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(newObject);
+						pushStatus(status);
+						pushValue(newObject);
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
-						val=(List)valueStack.getFirst();
+						val=(List)peekValue();
 						List newArray=createArrayContainer(containerFactory);
 						val.add(newArray);
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(newArray);
+						pushStatus(status);
+						pushValue(newArray);
 						break;
 					default:
 						status=S_IN_ERROR;
@@ -266,7 +358,7 @@ public class JSONParser {
 	}
 	
 	private void nextToken() throws ParseException, IOException{
-		token = lexer.yylex();
+		token = source.yylex();
 		if(token == null)
 			token = new Yytoken(Yytoken.TYPE_EOF, null);
 	}
@@ -327,20 +419,67 @@ public class JSONParser {
 	 * @throws ParseException
 	 */
 	public void parse(Reader in, ContentHandler contentHandler, boolean isResume) throws IOException, ParseException{
-		if(!isResume){
+		if(!isResume || !handlerStarted){
 			reset(in);
-			handlerStatusStack = new LinkedList();
+			handlerStarted = true;
+		}
+		parse(contentHandler);
+	}
+	
+	public void parse(byte[] in, ContentHandler contentHandler) throws ParseException{
+		parse(in, 0, in.length, contentHandler, false);
+	}
+	
+	/**
+	 * Stream processing of UTF-8 encoded JSON text held in a buffer. Only the buffer's remaining bytes are parsed,
+	 * its position is left unchanged.
+	 * 
+	 * @see #parse(byte[], int, int, ContentHandler, boolean)
+	 */
+	public void parse(ByteBuffer in, ContentHandler contentHandler) throws ParseException{
+		if(in.hasArray()){
+			parse(in.array(), in.arrayOffset() + in.position(), in.remaining(), contentHandler, false);
 		}
 		else{
-			if(handlerStatusStack == null){
-				isResume = false;
-				reset(in);
-				handlerStatusStack = new LinkedList();
-			}
+			byte[] copy = new byte[in.remaining()];
+			in.duplicate().get(copy);
+			parse(copy, 0, copy.length, contentHandler, false);
 		}
-		
-		LinkedList statusStack = handlerStatusStack;	
-		
+	}
+	
+	/**
+	 * Stream processing of UTF-8 encoded JSON text. The bytes are scanned directly,
+	 * only the contents of string values are decoded.
+	 * 
+	 * @see #parse(Reader, ContentHandler, boolean)
+	 * 
+	 * @param in - The array holding the input.
+	 * @param offset - The index of the first byte of the input.
+	 * @param length - The number of bytes of the input.
+	 * @param contentHandler
+	 * @param isResume - Indicates if it continues previous parsing operation.
+	 *                   If set to true, resume parsing the old input, and the other input parameters will be ignored.
+	 *                   If this method is called for the first time in this instance, isResume will be ignored.
+	 * 
+	 * @throws ParseException
+	 */
+	public void parse(byte[] in, int offset, int length, ContentHandler contentHandler, boolean isResume) throws ParseException{
+		if(!isResume || !handlerStarted){
+			reset(in, offset, length);
+			handlerStarted = true;
+		}
+		try{
+			parse(contentHandler);
+		}
+		catch(IOException ie){
+			/*
+			 * Actually it will never happen.
+			 */
+			throw new ParseException(-1, ParseException.ERROR_UNEXPECTED_EXCEPTION, ie);
+		}
+	}
+	
+	private void parse(ContentHandler contentHandler) throws IOException, ParseException{
 		try{
 			do{
 				switch(status){
@@ -350,19 +489,19 @@ public class JSONParser {
 					switch(token.type){
 					case Yytoken.TYPE_VALUE:
 						status=S_IN_FINISHED_VALUE;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.primitive(token.value))
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startObject())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startArray())
 							return;
 						break;
@@ -392,7 +531,7 @@ public class JSONParser {
 						if(token.value instanceof String){
 							String key=(String)token.value;
 							status=S_PASSED_PAIR_KEY;
-							statusStack.addFirst(new Integer(status));
+							pushStatus(status);
 							if(!contentHandler.startObjectEntry(key))
 								return;
 						}
@@ -401,9 +540,9 @@ public class JSONParser {
 						}
 						break;
 					case Yytoken.TYPE_RIGHT_BRACE:
-						if(statusStack.size()>1){
-							statusStack.removeFirst();
-							status=peekStatus(statusStack);
+						if(statusSize>1){
+							popStatus();
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -423,26 +562,26 @@ public class JSONParser {
 					case Yytoken.TYPE_COLON:
 						break;
 					case Yytoken.TYPE_VALUE:
-						statusStack.removeFirst();
-						status=peekStatus(statusStack);
+						popStatus();
+						status=peekStatus();
 						if(!contentHandler.primitive(token.value))
 							return;
 						if(!contentHandler.endObjectEntry())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
-						statusStack.removeFirst();
-						statusStack.addFirst(new Integer(S_IN_PAIR_VALUE));
+						popStatus();
+						pushStatus(S_IN_PAIR_VALUE);
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startArray())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
-						statusStack.removeFirst();
-						statusStack.addFirst(new Integer(S_IN_PAIR_VALUE));
+						popStatus();
+						pushStatus(S_IN_PAIR_VALUE);
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startObject())
 							return;
 						break;
@@ -456,8 +595,8 @@ public class JSONParser {
 					 * S_IN_PAIR_VALUE is just a marker to indicate the end of an object entry, it doesn't proccess any token,
 					 * therefore delay consuming token until next round.
 					 */
-					statusStack.removeFirst();
-					status = peekStatus(statusStack);
+					popStatus();
+					status = peekStatus();
 					if(!contentHandler.endObjectEntry())
 						return;
 					break;
@@ -472,9 +611,9 @@ public class JSONParser {
 							return;
 						break;
 					case Yytoken.TYPE_RIGHT_SQUARE:
-						if(statusStack.size()>1){
-							statusStack.removeFirst();
-							status=peekStatus(statusStack);
+						if(statusSize>1){
+							popStatus();
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -484,13 +623,13 @@ public class JSONParser {
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startObject())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startArray())
 							return;
 						break;
@@ -0,0 +1,61 @@
+package json.parser;
+
+import java.io.Reader;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free pool of JSONParser instances. Each parser owns a lexer with a sizeable character buffer,
+ * so reusing parsers instead of creating one per document avoids most of the allocation cost of parsing small texts.
+ * <p>
+ * The pool itself is thread-safe. A parser taken from the pool with acquire() belongs to the calling thread
+ * until it is handed back with release(); it must not be used afterwards.
+ * If the pool is empty, acquire() creates a new parser; if it is full, release() drops the parser.
+ * 
+ * @see JSONParser
+ */
+public class JSONParserPool {
+	private final AtomicReferenceArray<JSONParser> slots;
+	
+	/**
+	 * @param capacity - The maximum number of idle parsers kept in the pool.
+	 */
+	public JSONParserPool(int capacity){
+		if(capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		slots = new AtomicReferenceArray<JSONParser>(capacity);
+	}
+	
+	/**
+	 * @return An idle parser from the pool, or a new one if there is none.
+	 */
+	public JSONParser acquire(){
+		int n = slots.length();
+		int start = ThreadLocalRandom.current().nextInt(n);
+		for(int i = 0; i < n; i++){
+			int index = (start + i) % n;
+			if(slots.get(index) == null)
+				continue;
+			JSONParser parser = slots.getAndSet(index, null);
+			if(parser != null)
+				return parser;
+		}
+		return new JSONParser();
+	}
+	
+	/**
+	 * Hands a parser back to the pool. The parser is reset so that it does not keep its last input alive.
+	 * 
+	 * @param parser - A parser previously returned by acquire().
+	 */
+	public void release(JSONParser parser){
+		parser.reset((Reader)null);
+		int n = slots.length();
+		int start = ThreadLocalRandom.current().nextInt(n);
+		for(int i = 0; i < n; i++){
+			int index = (start + i) % n;
+			if(slots.get(index) == null && slots.compareAndSet(index, null, parser))
+				return;
+		}
+	}
+}
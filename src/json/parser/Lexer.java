@@ -0,0 +1,21 @@
+package json.parser;
+
+import java.io.IOException;
+
+/**
+ * Token source of a JSONParser.
+ * 
+ * @see Yylex
+ * @see Utf8Lexer
+ */
+interface Lexer {
+	/**
+	 * @return The next token, or null at the end of the input.
+	 */
+	Yytoken yylex() throws IOException, ParseException;
+	
+	/**
+	 * @return The position of the beginning of the current token.
+	 */
+	int getPosition();
+}
@@ -0,0 +1,63 @@
+package json.parser;
+
+/**
+ * Number helpers shared by the lexers, so that integer tokens can be turned into Long values
+ * without creating a String for each of them.
+ */
+final class Numbers {
+	/*
+	 * Long.valueOf() only caches -128..127. API payloads are dominated by small counters, sizes and IDs,
+	 * so a somewhat larger range of boxed values is kept around.
+	 */
+	private static final int CACHE_SIZE = 1024;
+	private static final Long[] CACHE = new Long[CACHE_SIZE];
+	
+	static {
+		for(int i = 0; i < CACHE_SIZE; i++)
+			CACHE[i] = Long.valueOf(i);
+	}
+	
+	private Numbers(){
+	}
+	
+	/**
+	 * @return A boxed Long for the given value, shared for values from 0 to 1023.
+	 */
+	static Long valueOf(long value){
+		if(value >= 0 && value < CACHE_SIZE)
+			return CACHE[(int)value];
+		return Long.valueOf(value);
+	}
+	
+	/**
+	 * Parses a decimal integer of the form -?[0-9]+ from a region of a character array.
+	 * 
+	 * @throws NumberFormatException if the region is not a valid integer or does not fit into a long.
+	 */
+	static long parseLong(char[] buffer, int offset, int length){
+		int p = offset;
+		int end = offset + length;
+		boolean negative = false;
+		if(p < end && buffer[p] == '-'){
+			negative = true;
+			p++;
+		}
+		if(p == end)
+			throw new NumberFormatException(new String(buffer, offset, length));
+		
+		// accumulate negatively so that Long.MIN_VALUE can be represented
+		long value = 0;
+		for(; p < end; p++){
+			int d = buffer[p] - '0';
+			if(d < 0 || d > 9 || value < (Long.MIN_VALUE + d) / 10)
+				throw new NumberFormatException(new String(buffer, offset, length));
+			value = value * 10 - d;
+		}
+		if(!negative){
+			if(value == Long.MIN_VALUE)
+				throw new NumberFormatException(new String(buffer, offset, length));
+			value = -value;
+		}
+		return value;
+	}
+}
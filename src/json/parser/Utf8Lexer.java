@@ -0,0 +1,273 @@
+package json.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lexer for UTF-8 encoded JSON text held in a byte array. It recognizes the same tokens as Yylex,
+ * but scans the bytes directly: structural characters, numbers and literals are never decoded to characters,
+ * and only the contents of string values are turned into Strings.
+ * <p>
+ * Positions reported by this lexer are byte offsets relative to the start of the input.
+ * The returned token object is reused, it is only valid until the next call of yylex().
+ *
+ * @see Yylex
+ */
+class Utf8Lexer implements Lexer {
+	private byte[] buffer;
+	private int start;
+	private int pos;
+	private int end;
+	private int tokenStart;
+	
+	private final Yytoken token = new Yytoken(Yytoken.TYPE_EOF, null);
+	private StringBuilder sb = new StringBuilder();
+	
+	/**
+	 * Resets the lexer to scan the given region of a byte array.
+	 */
+	void reset(byte[] buffer, int offset, int length){
+		this.buffer = buffer;
+		this.start = offset;
+		this.pos = offset;
+		this.end = offset + length;
+		this.tokenStart = offset;
+	}
+	
+	public int getPosition(){
+		return tokenStart - start;
+	}
+	
+	public Yytoken yylex() throws ParseException {
+		byte[] b = buffer;
+		int p = pos;
+		while(p < end && (b[p] == ' ' || b[p] == '\n' || b[p] == '\r' || b[p] == '\t'))
+			p++;
+		tokenStart = p;
+		if(p >= end){
+			pos = p;
+			return null;
+		}
+		
+		byte c = b[p];
+		switch(c){
+		case '{':
+			pos = p + 1;
+			return token(Yytoken.TYPE_LEFT_BRACE, null);
+		case '}':
+			pos = p + 1;
+			return token(Yytoken.TYPE_RIGHT_BRACE, null);
+		case '[':
+			pos = p + 1;
+			return token(Yytoken.TYPE_LEFT_SQUARE, null);
+		case ']':
+			pos = p + 1;
+			return token(Yytoken.TYPE_RIGHT_SQUARE, null);
+		case ',':
+			pos = p + 1;
+			return token(Yytoken.TYPE_COMMA, null);
+		case ':':
+			pos = p + 1;
+			return token(Yytoken.TYPE_COLON, null);
+		case '"':
+			return token(Yytoken.TYPE_VALUE, string(p + 1));
+		case 't':
+			literal(p, "true");
+			return token(Yytoken.TYPE_VALUE, Boolean.TRUE);
+		case 'f':
+			literal(p, "false");
+			return token(Yytoken.TYPE_VALUE, Boolean.FALSE);
+		case 'n':
+			literal(p, "null");
+			return token(Yytoken.TYPE_VALUE, null);
+		default:
+			if(c == '-' || (c >= '0' && c <= '9'))
+				return token(Yytoken.TYPE_VALUE, number(p));
+			throw unexpected(p);
+		}
+	}
+	
+	private Yytoken token(int type, Object value){
+		token.type = type;
+		token.value = value;
+		return token;
+	}
+	
+	private ParseException unexpected(int p){
+		char c = p < end ? (char)(buffer[p] & 0xff) : (char)0;
+		return new ParseException(p - start, ParseException.ERROR_UNEXPECTED_CHAR, Character.valueOf(c));
+	}
+	
+	private void literal(int p, String literal) throws ParseException {
+		int n = literal.length();
+		for(int i = 0; i < n; i++){
+			if(p + i >= end || buffer[p + i] != literal.charAt(i))
+				throw unexpected(p + i);
+		}
+		pos = p + n;
+	}
+	
+	/**
+	 * Scans a number with the grammar of Yylex: -?[0-9]+ for integers, optionally followed by a fraction and/or an exponent for doubles.
+	 */
+	private Object number(int p) throws ParseException {
+		byte[] b = buffer;
+		int first = p;
+		boolean negative = false;
+		if(b[p] == '-'){
+			negative = true;
+			p++;
+		}
+		int digits = p;
+		long value = 0;
+		boolean overflow = false;
+		while(p < end && b[p] >= '0' && b[p] <= '9'){
+			int d = b[p] - '0';
+			// accumulate negatively so that Long.MIN_VALUE can be represented
+			if(value < (Long.MIN_VALUE + d) / 10)
+				overflow = true;
+			value = value * 10 - d;
+			p++;
+		}
+		if(p == digits)
+			throw unexpected(p);
+		
+		boolean fraction = false;
+		if(p + 1 < end && b[p] == '.' && b[p + 1] >= '0' && b[p + 1] <= '9'){
+			fraction = true;
+			p += 2;
+			while(p < end && b[p] >= '0' && b[p] <= '9')
+				p++;
+		}
+		if(p < end && (b[p] == 'e' || b[p] == 'E')){
+			int q = p + 1;
+			if(q < end && (b[q] == '+' || b[q] == '-'))
+				q++;
+			if(q < end && b[q] >= '0' && b[q] <= '9'){
+				fraction = true;
+				p = q;
+				while(p < end && b[p] >= '0' && b[p] <= '9')
+					p++;
+			}
+		}
+		pos = p;
+		
+		if(fraction)
+			return Double.valueOf(new String(b, first, p - first, StandardCharsets.ISO_8859_1));
+		if(overflow || (!negative && value == Long.MIN_VALUE))
+			throw new ParseException(first - start, ParseException.ERROR_UNEXPECTED_EXCEPTION,
+					new NumberFormatException(new String(b, first, p - first, StandardCharsets.ISO_8859_1)));
+		return Numbers.valueOf(negative ? value : -value);
+	}
+	
+	/**
+	 * Scans a string value starting right after its opening quote.
+	 * Strings without escape sequences are decoded in one go, others are assembled in a reused builder.
+	 */
+	private String string(int p) throws ParseException {
+		byte[] b = buffer;
+		int first = p;
+		boolean ascii = true;
+		while(p < end){
+			byte c = b[p];
+			if(c == '"'){
+				pos = p + 1;
+				return new String(b, first, p - first, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+			}
+			if(c == '\\')
+				return escapedString(first, p);
+			if(c < 0)
+				ascii = false;
+			p++;
+		}
+		throw new ParseException(tokenStart - start, ParseException.ERROR_UNEXPECTED_TOKEN, null);
+	}
+	
+	private String escapedString(int first, int p) throws ParseException {
+		byte[] b = buffer;
+		StringBuilder sb = this.sb;
+		sb.setLength(0);
+		int run = first;
+		while(p < end){
+			byte c = b[p];
+			if(c == '"'){
+				append(run, p);
+				pos = p + 1;
+				return sb.toString();
+			}
+			if(c != '\\'){
+				p++;
+				continue;
+			}
+			append(run, p);
+			if(p + 1 >= end)
+				break;
+			switch(b[p + 1]){
+			case '"':
+				sb.append('"');
+				break;
+			case '\\':
+				sb.append('\\');
+				break;
+			case '/':
+				sb.append('/');
+				break;
+			case 'b':
+				sb.append('\b');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'u':
+				if(p + 6 > end)
+					throw unexpected(p);
+				int ch = 0;
+				for(int i = p + 2; i < p + 6; i++){
+					int d = Character.digit(b[i], 16);
+					if(d < 0)
+						throw unexpected(p);
+					ch = (ch << 4) | d;
+				}
+				sb.append((char)ch);
+				p += 4;
+				break;
+			default:
+				// like Yylex, keep a backslash that does not start a known escape sequence
+				sb.append('\\');
+				p++;
+				run = p;
+				continue;
+			}
+			p += 2;
+			run = p;
+		}
+		throw new ParseException(tokenStart - start, ParseException.ERROR_UNEXPECTED_TOKEN, null);
+	}
+	
+	private void append(int from, int to){
+		if(from == to)
+			return;
+		boolean ascii = true;
+		for(int i = from; i < to; i++){
+			if(buffer[i] < 0){
+				ascii = false;
+				break;
+			}
+		}
+		if(ascii){
+			for(int i = from; i < to; i++)
+				sb.append((char)buffer[i]);
+		}
+		else{
+			sb.append(new String(buffer, from, to - from, StandardCharsets.UTF_8));
+		}
+	}
+}
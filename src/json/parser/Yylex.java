@@ -2,7 +2,7 @@
 
 package json.parser;
 
-class Yylex {
+class Yylex implements Lexer {
 
   /** This character denotes the end of file */
   public static final int YYEOF = -1;
@@ -266,10 +266,15 @@ class Yylex {
   /* user code: */
 private StringBuffer sb=new StringBuffer();
 
-int getPosition(){
+public int getPosition(){
 	return yychar;
 }
 
+/* parses the matched integer straight from the buffer instead of going through yytext() */
+private Long yylong(){
+	return Numbers.valueOf(Numbers.parseLong(zzBuffer, zzStartRead, zzMarkedPos-zzStartRead));
+}
+
 
 
   /**
@@ -657,7 +662,7 @@ int getPosition(){
           }
         case 44: break;
         case 2: 
-          { Long val=Long.valueOf(yytext()); return new Yytoken(Yytoken.TYPE_VALUE, val);
+          { Long val=yylong(); return new Yytoken(Yytoken.TYPE_VALUE, val);
           }
         case 45: break;
         case 18: 
@@ -1,3 +1,6 @@
 module fences_server_client {
-	requires java.net.http;
+	requires transitive java.net.http;
+	requires transitive java.management;
+	
+	exports fences;
 }
\ No newline at end of file